@@ -15,6 +15,27 @@ java {
     targetCompatibility = JavaVersion.VERSION_17
 }
 
+// 端到端基准：本地裸仓库作为 origin，执行插件中不依赖 IDE 的合并流程（MergeFlow），不依赖网络
+// JMH 微基准：日志渲染与输出格式化（只用到不依赖 IDE 的类）
+sourceSets {
+    create("benchmark") {
+        compileClasspath += sourceSets["main"].output
+        runtimeClasspath += sourceSets["main"].output
+    }
+    create("jmh") {
+        compileClasspath += sourceSets["main"].output
+        runtimeClasspath += sourceSets["main"].output
+    }
+}
+
+dependencies {
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
 intellij {
     version.set("2023.3")
     type.set("IC") // IntelliJ IDEA Community Edition
@@ -34,4 +55,25 @@ tasks {
     withType<JavaCompile> {
         options.encoding = "UTF-8"
     }
+
+    // 单元测试只覆盖不依赖 IDE 的解析与提交图逻辑，部分测试需要 PATH 中有 git
+    test {
+        useJUnitPlatform()
+    }
+}
+
+tasks.register<JavaExec>("benchmark") {
+    group = "verification"
+    description = "在本地合成仓库上比较各合并策略的耗时与 git 进程数"
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("com.jiuji.mergetodev.MergeBenchmark")
+    args = (project.findProperty("benchmarkArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "运行日志渲染与输出格式化的 JMH 微基准"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = (project.findProperty("jmhArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
 }
@@ -0,0 +1,212 @@
+package com.jiuji.mergetodev;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 命令行版的 {@link MergeGit}：每个方法启动的 git 命令与 {@link GitOperationHelper} 一致，
+ * 引用解析与祖先判断同样由常驻的 {@link CatFileBatch} 回答，查询失败时回退到单独的 git 命令
+ * 插件从 IDE 缓存读取的状态（未提交更改、当前分支、是否合并中）这里直接读取，不计入进程数
+ */
+public class CliMergeGit implements MergeGit {
+
+    /** 插件的默认 fetch 选项 */
+    private static final FetchStrategy FETCH_STRATEGY = new FetchStrategy(false, false, false, null);
+
+    private final GitExecutor git;
+    /** 只用于读取插件不启动进程就能得到的状态 */
+    private final GitExecutor uncounted;
+    private final CatFileBatch batch;
+    private final Path work;
+
+    /**
+     * @param git       执行合并命令（计入进程数）
+     * @param uncounted 读取工作区状态，对应插件中 ChangeListManager 的缓存
+     * @param batch     常驻查询进程，跨多次合并复用
+     */
+    public CliMergeGit(GitExecutor git, GitExecutor uncounted, CatFileBatch batch, Path work) {
+        this.git = git;
+        this.uncounted = uncounted;
+        this.batch = batch;
+        this.work = work;
+    }
+
+    public GitExecutor getExecutor() {
+        return git;
+    }
+
+    public Path getWorkDir() {
+        return work;
+    }
+
+    @Override
+    public boolean hasUncommittedChanges() {
+        return !run(uncounted, "status", "--porcelain").output.isBlank();
+    }
+
+    @Override
+    public int getAheadCount(String branch) {
+        AheadBehind counts = aheadBehind("origin/" + branch, branch);
+        return counts == null ? -1 : counts.ahead;
+    }
+
+    @Override
+    public boolean fetchSilent(String... branches) {
+        return fetch(branches);
+    }
+
+    @Override
+    public boolean commitAll(String message) {
+        return run(git, "add", ".").exitCode == 0 && run(git, "commit", "-m", message).exitCode == 0;
+    }
+
+    @Override
+    public boolean fetch(String... branches) {
+        List<String> names = List.of(branches);
+        String current = currentBranch();
+        List<String> args = new ArrayList<>();
+        args.add("fetch");
+        args.addAll(FETCH_STRATEGY.options(this::revParse, names, current == null ? new String[0] : new String[]{current}));
+        args.add("origin");
+        args.addAll(FETCH_STRATEGY.refspecs(names));
+        return run(git, args.toArray(new String[0])).exitCode == 0;
+    }
+
+    @Override
+    public boolean checkout(String branch) {
+        return run(git, "checkout", branch).exitCode == 0;
+    }
+
+    @Override
+    public boolean abortMerge() {
+        return run(git, "merge", "--abort").exitCode == 0;
+    }
+
+    @Override
+    public boolean merge(String branch) {
+        return run(git, "merge", branch, "--no-edit").exitCode == 0;
+    }
+
+    @Override
+    public boolean push(String... refspecs) {
+        return pushForResult(false, refspecs).success;
+    }
+
+    @Override
+    public PushResult pushForResult(boolean atomic, String... refspecs) {
+        List<String> args = new ArrayList<>();
+        args.add("push");
+        if (atomic) {
+            args.add("--atomic");
+        }
+        args.add("origin");
+        args.addAll(List.of(refspecs));
+        GitExecutor.Result result = run(git, args.toArray(new String[0]));
+        if (result.exitCode == 0) {
+            return PushResult.SUCCESS;
+        }
+        if (atomic && result.output.contains("does not support --atomic")) {
+            return pushForResult(false, refspecs);
+        }
+        return PushResult.parse(result.output.lines().toList());
+    }
+
+    @Override
+    public String revParse(String ref) {
+        try {
+            return batch.revParse(ref);
+        } catch (IOException e) {
+            // 与插件一致，回退到 git rev-parse
+        }
+        GitExecutor.Result result = run(git, "rev-parse", "--verify", "--quiet", ref + "^{commit}");
+        return result.exitCode != 0 || result.output.isBlank() ? null : result.firstLine();
+    }
+
+    @Override
+    public boolean isAncestor(String ancestor, String descendant) {
+        try {
+            AheadBehind result = batch.aheadBehind(ancestor, descendant, () -> { });
+            return result != null && result.behind == 0;
+        } catch (IOException e) {
+            // 与插件一致，回退到 git merge-base
+        }
+        return run(git, "merge-base", "--is-ancestor", ancestor, descendant).exitCode == 0;
+    }
+
+    private AheadBehind aheadBehind(String base, String head) {
+        try {
+            return batch.aheadBehind(base, head, () -> { });
+        } catch (IOException e) {
+            // 与插件一致，回退到 git rev-list
+        }
+        GitExecutor.Result result = run(git, "rev-list", "--left-right", "--count", base + "..." + head);
+        if (result.exitCode != 0) {
+            return null;
+        }
+        String[] counts = result.firstLine().split("\\s+");
+        return new AheadBehind(Integer.parseInt(counts[1]), Integer.parseInt(counts[0]));
+    }
+
+    @Override
+    public TreeMergeResult mergeTree(String ours, String theirs) {
+        GitExecutor.Result result = run(git, TreeMergeResult.args(ours, theirs));
+        return TreeMergeResult.parse(result.exitCode, result.output.lines().toList());
+    }
+
+    @Override
+    public String commitTree(String tree, String message, String... parents) {
+        List<String> args = new ArrayList<>();
+        args.add("commit-tree");
+        args.add(tree);
+        for (String parent : parents) {
+            args.add("-p");
+            args.add(parent);
+        }
+        args.add("-m");
+        args.add(message);
+        GitExecutor.Result result = run(git, args.toArray(new String[0]));
+        return result.exitCode != 0 || result.output.isBlank() ? null : result.firstLine();
+    }
+
+    @Override
+    public void fastForwardLocalBranch(String branch, String commit) {
+        String localCommit = revParse("refs/heads/" + branch);
+        if (localCommit == null || localCommit.equals(commit) || !isAncestor(localCommit, commit)) {
+            return;
+        }
+        run(git, "update-ref", "refs/heads/" + branch, commit, localCommit);
+    }
+
+    @Override
+    public void refresh() {
+        // 每次直接读取 .git，无需刷新
+    }
+
+    @Override
+    public String currentBranch() {
+        try {
+            String head = Files.readString(work.resolve(".git/HEAD"), StandardCharsets.UTF_8).trim();
+            return head.startsWith("ref: refs/heads/") ? head.substring("ref: refs/heads/".length()) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isMerging() {
+        return Files.exists(work.resolve(".git/MERGE_HEAD"));
+    }
+
+    private GitExecutor.Result run(GitExecutor executor, String... args) {
+        try {
+            return executor.run(work, args);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.jiuji.mergetodev;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 统计进程数的执行器包装，用于比较各策略启动的 git 进程数
+ */
+public class CountingGitExecutor implements GitExecutor {
+
+    private final GitExecutor delegate;
+    private int processCount;
+
+    public CountingGitExecutor(GitExecutor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Result run(Path workDir, String... args) throws IOException {
+        processCount++;
+        return delegate.run(workDir, args);
+    }
+
+    public int getProcessCount() {
+        return processCount;
+    }
+
+    public void reset() {
+        processCount = 0;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jiuji.mergetodev;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 基准测试使用的 git 执行器，可替换为不同实现（本地进程、计数包装等）
+ */
+public interface GitExecutor {
+
+    /**
+     * 在指定目录执行 git 子命令
+     */
+    Result run(Path workDir, String... args) throws IOException;
+
+    /**
+     * 在指定目录执行 git 子命令，失败时抛出异常
+     */
+    default Result runChecked(Path workDir, String... args) throws IOException {
+        Result result = run(workDir, args);
+        if (result.exitCode != 0) {
+            throw new IOException("git " + String.join(" ", args) + " 失败（" + result.exitCode + "）：" + result.output);
+        }
+        return result;
+    }
+
+    /**
+     * 命令执行结果
+     */
+    class Result {
+        public final int exitCode;
+        /** 标准输出与错误输出 */
+        public final String output;
+
+        public Result(int exitCode, String output) {
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+
+        /**
+         * 输出的第一行（去除首尾空白）
+         */
+        public String firstLine() {
+            int newline = output.indexOf('\n');
+            return (newline < 0 ? output : output.substring(0, newline)).trim();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.jiuji.mergetodev;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 端到端合并基准：在本地裸仓库上按各策略重复执行插件的合并流程（{@link MergeFlow}），输出耗时分布与 git 进程数
+ * 进程数包含常驻 cat-file 查询进程的启动（与插件一样跨多次合并复用，通常只在第一轮启动）
+ * 不依赖 IDE 与网络，可在 CI 中运行；指定基线文件时耗时回退超过阈值返回非零退出码
+ * <pre>
+ * ./gradlew benchmark -PbenchmarkArgs="--files 2000 --commits 200 --feature-ahead 5 --target-ahead 3"
+ * </pre>
+ */
+public class MergeBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        ProcessGitExecutor executor = new ProcessGitExecutor(options.gitPath);
+        CountingGitExecutor git = new CountingGitExecutor(executor);
+
+        System.out.printf("仓库：%d 个文件，%d 个历史提交，功能分支领先 %d，目标分支领先 %d；每个策略 %d 轮（预热 %d 轮）%n",
+                options.files, options.commits, options.featureAhead, options.targetAhead,
+                options.iterations, options.warmup);
+        SyntheticRepository repository = SyntheticRepository.create(git, options.files, options.commits,
+                options.featureAhead, options.targetAhead);
+
+        Map<MergeStrategy, Result> results = new LinkedHashMap<>();
+        CatFileBatch batch = new CatFileBatch(options.gitPath, repository.getWorkDir().toFile());
+        try {
+            CliMergeGit mergeGit = new CliMergeGit(git, executor, batch, repository.getWorkDir());
+            for (MergeStrategy strategy : options.strategies) {
+                results.put(strategy, measure(strategy, repository, mergeGit, git, batch, options));
+            }
+        } finally {
+            batch.stop();
+            repository.delete();
+        }
+
+        System.out.printf("%n%-14s %10s %10s %10s %8s%n", "策略", "P50 (ms)", "P95 (ms)", "最大 (ms)", "进程数");
+        results.forEach((strategy, result) -> System.out.printf("%-14s %10d %10d %10d %8d%n",
+                strategy, result.p50(), result.p95(), result.max(), result.processCount));
+
+        if (options.writeBaseline != null) {
+            writeBaseline(options.writeBaseline, results);
+        }
+        if (options.baseline != null && !checkBaseline(options.baseline, results, options.maxRegression)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 每轮前恢复仓库状态（不计时），只统计合并命令序列本身
+     */
+    private static Result measure(MergeStrategy strategy, SyntheticRepository repository, CliMergeGit mergeGit,
+                                  CountingGitExecutor git, CatFileBatch batch, Options options) throws IOException {
+        Result result = new Result();
+        for (int i = 0; i < options.warmup + options.iterations; i++) {
+            repository.reset();
+            git.reset();
+            int starts = batch.getStarts();
+            long start = System.nanoTime();
+            strategy.run(mergeGit);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            if (i >= options.warmup) {
+                result.durations.add(elapsedMs);
+                result.processCount = git.getProcessCount() + batch.getStarts() - starts;
+            }
+        }
+        return result;
+    }
+
+    private static void writeBaseline(Path file, Map<MergeStrategy, Result> results) throws IOException {
+        Properties properties = new Properties();
+        results.forEach((strategy, result) -> properties.setProperty(strategy.name(), String.valueOf(result.p50())));
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Quick Merge benchmark baseline (P50 ms)");
+        }
+        System.out.println("已写入基线：" + file);
+    }
+
+    /**
+     * 与基线比较 P50，超过 (1 + maxRegression) 倍视为回退
+     */
+    private static boolean checkBaseline(Path file, Map<MergeStrategy, Result> results, double maxRegression) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+        boolean passed = true;
+        for (Map.Entry<MergeStrategy, Result> entry : results.entrySet()) {
+            String value = baseline.getProperty(entry.getKey().name());
+            if (value == null) {
+                continue;
+            }
+            long expected = Long.parseLong(value.trim());
+            long actual = entry.getValue().p50();
+            if (actual > expected * (1 + maxRegression)) {
+                System.out.printf("✗ %s 回退：P50 %d ms，基线 %d ms%n", entry.getKey(), actual, expected);
+                passed = false;
+            }
+        }
+        if (passed) {
+            System.out.println("✓ 未超过基线");
+        }
+        return passed;
+    }
+
+    /**
+     * 单个策略的测量结果
+     */
+    private static class Result {
+        final List<Long> durations = new ArrayList<>();
+        int processCount;
+
+        long p50() {
+            return percentile(50);
+        }
+
+        long p95() {
+            return percentile(95);
+        }
+
+        long max() {
+            return Collections.max(durations);
+        }
+
+        private long percentile(int percent) {
+            List<Long> sorted = new ArrayList<>(durations);
+            Collections.sort(sorted);
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+            return sorted.get(Math.max(0, rank - 1));
+        }
+    }
+
+    /**
+     * 命令行参数
+     */
+    private static class Options {
+        String gitPath = "git";
+        int files = 1000;
+        int commits = 50;
+        int featureAhead = 3;
+        int targetAhead = 2;
+        int iterations = 10;
+        int warmup = 2;
+        List<MergeStrategy> strategies = List.of(MergeStrategy.values());
+        Path baseline;
+        Path writeBaseline;
+        double maxRegression = 0.2;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--git" -> options.gitPath = value;
+                    case "--files" -> options.files = Integer.parseInt(value);
+                    case "--commits" -> options.commits = Integer.parseInt(value);
+                    case "--feature-ahead" -> options.featureAhead = Integer.parseInt(value);
+                    case "--target-ahead" -> options.targetAhead = Integer.parseInt(value);
+                    case "--iterations" -> options.iterations = Integer.parseInt(value);
+                    case "--warmup" -> options.warmup = Integer.parseInt(value);
+                    case "--strategies" -> {
+                        List<MergeStrategy> strategies = new ArrayList<>();
+                        for (String name : value.split(",")) {
+                            strategies.add(MergeStrategy.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                        }
+                        options.strategies = strategies;
+                    }
+                    case "--baseline" -> options.baseline = Paths.get(value);
+                    case "--write-baseline" -> options.writeBaseline = Paths.get(value);
+                    case "--max-regression" -> options.maxRegression = Double.parseDouble(value);
+                    default -> throw new IllegalArgumentException("未知参数：" + args[i]);
+                }
+                i++;
+            }
+            if (options.files < 1 || options.commits < 1 || options.featureAhead < 1 || options.iterations < 1) {
+                throw new IllegalArgumentException("--files、--commits、--feature-ahead、--iterations 必须大于 0");
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.jiuji.mergetodev;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 各合并策略：除 LEGACY 外都执行插件的 {@link MergeFlow}（预检查 + 合并），只是配置不同
+ * （工作区无未提交更改、当前分支有未推送提交的场景）
+ */
+public enum MergeStrategy {
+
+    /** 优化前的九步流程：push → fetch → checkout → pull → merge → push → checkout（插件已不再包含，手写作为参照） */
+    LEGACY {
+        @Override
+        void run(CliMergeGit git) throws IOException {
+            GitExecutor executor = git.getExecutor();
+            Path work = git.getWorkDir();
+            String feature = SyntheticRepository.FEATURE_BRANCH;
+            String target = SyntheticRepository.TARGET_BRANCH;
+            executor.runChecked(work, "fetch", "origin", feature);
+            executor.runChecked(work, "rev-list", "--count", "origin/" + feature + ".." + feature);
+            executor.runChecked(work, "push", "origin", feature);
+            executor.runChecked(work, "fetch", "origin", target);
+            executor.runChecked(work, "checkout", target);
+            executor.runChecked(work, "pull", "--no-rebase", "--no-edit", "origin", target);
+            executor.runChecked(work, "merge", feature, "--no-edit");
+            executor.runChecked(work, "push", "origin", target);
+            executor.runChecked(work, "checkout", feature);
+        }
+    },
+
+    /** 常规合并，关闭合并网络请求：预检查与合并阶段分别 fetch，推送分开执行 */
+    CLASSIC {
+        @Override
+        void run(CliMergeGit git) throws IOException {
+            runFlow(git, false, false);
+        }
+    },
+
+    /** 常规合并，开启合并网络请求：预检查一次 fetch 所有分支，最后一次原子推送 */
+    BATCHED {
+        @Override
+        void run(CliMergeGit git) throws IOException {
+            runFlow(git, false, true);
+        }
+    },
+
+    /** 默认配置：合并网络请求 + 免检出合并（merge-tree / commit-tree），不触碰工作区 */
+    CHECKOUT_FREE {
+        @Override
+        void run(CliMergeGit git) throws IOException {
+            runFlow(git, true, true);
+        }
+    };
+
+    /** 插件默认的推送竞争重试次数 */
+    private static final int PUSH_RETRY_LIMIT = 3;
+
+    /**
+     * 执行一次合并，失败时抛出异常
+     */
+    abstract void run(CliMergeGit git) throws IOException;
+
+    /**
+     * 与 MergeToDevAction 相同：预检查后按结果决定是否提交、是否推送当前分支，再执行合并流程
+     */
+    private static void runFlow(CliMergeGit git, boolean checkoutFree, boolean batched) throws IOException {
+        String feature = SyntheticRepository.FEATURE_BRANCH;
+        List<String> targets = List.of(SyntheticRepository.TARGET_BRANCH);
+        MergeFlow.Preflight preflight = MergeFlow.preflight(git, feature, targets, batched, () -> { });
+        if (!preflight.hasUncommittedChanges && preflight.aheadCount == 0) {
+            throw new IOException("预检查显示没有需要合并的更改");
+        }
+
+        QuietOutput output = new QuietOutput();
+        MergeFlow flow = new MergeFlow(git, output, new MemoryJournals(), feature, Map.of(feature, targets),
+                preflight.hasUncommittedChanges ? "auto commit before merge" : null,
+                preflight.needsPush() ? Set.of(feature) : Set.of(),
+                new MergeFlow.Options(checkoutFree, batched, preflight.targetsFetched, PUSH_RETRY_LIMIT));
+        if (!flow.run(NoProgress.INSTANCE)) {
+            throw new IOException("合并失败：" + output.lastError);
+        }
+    }
+
+    /**
+     * 不显示进度、不可取消
+     */
+    private enum NoProgress implements MergeFlow.Progress {
+        INSTANCE;
+
+        @Override
+        public void checkCanceled() {
+        }
+
+        @Override
+        public void setText(String text) {
+        }
+    }
+
+    /**
+     * 只保留最后一条错误，失败时报告
+     */
+    private static class QuietOutput implements MergeFlow.Output {
+        String lastError;
+
+        @Override
+        public void printInfo(String message) {
+        }
+
+        @Override
+        public void printSuccess(String message) {
+        }
+
+        @Override
+        public void printError(String message) {
+            lastError = message;
+        }
+    }
+
+    /**
+     * 日志只保存在内存中，每次合并从头开始
+     */
+    private static class MemoryJournals implements MergeFlow.Journals {
+        private MergeJournal journal;
+
+        @Override
+        public MergeJournal load() {
+            return journal;
+        }
+
+        @Override
+        public void save(MergeJournal journal) {
+            this.journal = journal;
+        }
+
+        @Override
+        public void clear() {
+            journal = null;
+        }
+    }
+}
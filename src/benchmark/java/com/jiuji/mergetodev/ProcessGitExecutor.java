@@ -0,0 +1,49 @@
+package com.jiuji.mergetodev;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 通过本地 git 进程执行命令
+ */
+public class ProcessGitExecutor implements GitExecutor {
+
+    private final String gitPath;
+
+    public ProcessGitExecutor(String gitPath) {
+        this.gitPath = gitPath;
+    }
+
+    @Override
+    public Result run(Path workDir, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(gitPath);
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true);
+        // 与插件一致：不弹出认证提示，固定提交信息便于复现
+        builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+        builder.environment().put("GIT_AUTHOR_NAME", "benchmark");
+        builder.environment().put("GIT_AUTHOR_EMAIL", "benchmark@localhost");
+        builder.environment().put("GIT_COMMITTER_NAME", "benchmark");
+        builder.environment().put("GIT_COMMITTER_EMAIL", "benchmark@localhost");
+
+        Process process = builder.start();
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try {
+            return new Result(process.waitFor(), output);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            throw new IOException("git 进程被中断", e);
+        }
+    }
+}
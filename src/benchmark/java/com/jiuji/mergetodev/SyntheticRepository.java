@@ -0,0 +1,149 @@
+package com.jiuji.mergetodev;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 生成基准测试用的合成仓库：本地裸仓库作为 origin，工作副本位于功能分支
+ * <pre>
+ * origin/dev     : 初始提交 → (commits - 1) 个提交 → targetAhead 个提交（他人推送，本地未合并）
+ * origin/feature : 从 dev 分出 → featureAhead - 1 个提交（已推送）
+ * feature        : origin/feature → 1 个提交（刚提交，未推送）
+ * </pre>
+ * 功能分支与目标分支修改不同的文件，合并不会冲突
+ */
+public class SyntheticRepository {
+
+    static final String TARGET_BRANCH = "dev";
+    static final String FEATURE_BRANCH = "feature";
+
+    private final GitExecutor git;
+    private final Path baseDir;
+    private final Path origin;
+    private final Path work;
+
+    /** 生成完成时的引用，每轮测试前恢复 */
+    private String originTargetHead;
+    private String featureHead;
+    private String pushedFeatureHead;
+    private String localTargetHead;
+
+    private SyntheticRepository(GitExecutor git, Path baseDir) {
+        this.git = git;
+        this.baseDir = baseDir;
+        this.origin = baseDir.resolve("origin.git");
+        this.work = baseDir.resolve("work");
+    }
+
+    /**
+     * @param files        初始提交中的文件数
+     * @param commits      目标分支的历史提交数
+     * @param featureAhead 功能分支领先目标分支的提交数（至少 1，最后一个未推送）
+     * @param targetAhead  目标分支领先功能分支的提交数，0 时可以快进
+     */
+    public static SyntheticRepository create(GitExecutor git, int files, int commits,
+                                             int featureAhead, int targetAhead) throws IOException {
+        SyntheticRepository repository = new SyntheticRepository(git, Files.createTempDirectory("quick-merge-bench"));
+        repository.generate(files, commits, featureAhead, targetAhead);
+        return repository;
+    }
+
+    public Path getWorkDir() {
+        return work;
+    }
+
+    private void generate(int files, int commits, int featureAhead, int targetAhead) throws IOException {
+        Files.createDirectories(work);
+        git.runChecked(baseDir, "init", "--bare", "--quiet", origin.toString());
+        git.runChecked(work, "init", "--quiet");
+        git.runChecked(work, "config", "user.name", "benchmark");
+        git.runChecked(work, "config", "user.email", "benchmark@localhost");
+        git.runChecked(work, "remote", "add", "origin", origin.toString());
+        git.runChecked(work, "checkout", "--quiet", "-b", TARGET_BRANCH);
+
+        // 初始提交
+        Path src = Files.createDirectories(work.resolve("src"));
+        for (int i = 0; i < files; i++) {
+            write(src.resolve("File" + i + ".txt"), "file " + i + "\n");
+        }
+        git.runChecked(work, "add", "--all");
+        git.runChecked(work, "commit", "--quiet", "-m", "initial");
+
+        // 目标分支历史
+        for (int i = 1; i < commits; i++) {
+            append(src.resolve("File" + (i % files) + ".txt"), "history " + i + "\n");
+            git.runChecked(work, "commit", "--quiet", "-a", "-m", "history " + i);
+        }
+        git.runChecked(work, "push", "--quiet", "origin", TARGET_BRANCH);
+        localTargetHead = head();
+
+        // 功能分支：只修改 feature 目录
+        git.runChecked(work, "checkout", "--quiet", "-b", FEATURE_BRANCH);
+        Path featureDir = Files.createDirectories(work.resolve("feature"));
+        for (int i = 0; i < featureAhead; i++) {
+            append(featureDir.resolve("Feature" + (i % 10) + ".txt"), "feature " + i + "\n");
+            git.runChecked(work, "add", "--all");
+            git.runChecked(work, "commit", "--quiet", "-m", "feature " + i);
+        }
+        featureHead = head();
+        pushedFeatureHead = git.runChecked(work, "rev-parse", "HEAD~1").firstLine();
+        git.runChecked(work, "push", "--quiet", "origin", pushedFeatureHead + ":refs/heads/" + FEATURE_BRANCH);
+
+        // 他人推送到目标分支的提交：只修改 target 目录，本地目标分支不包含
+        git.runChecked(work, "checkout", "--quiet", TARGET_BRANCH);
+        Path targetDir = Files.createDirectories(work.resolve("target"));
+        for (int i = 0; i < targetAhead; i++) {
+            append(targetDir.resolve("Target" + (i % 10) + ".txt"), "target " + i + "\n");
+            git.runChecked(work, "add", "--all");
+            git.runChecked(work, "commit", "--quiet", "-m", "target " + i);
+        }
+        git.runChecked(work, "push", "--quiet", "origin", TARGET_BRANCH);
+        originTargetHead = head();
+
+        git.runChecked(work, "checkout", "--quiet", FEATURE_BRANCH);
+        reset();
+    }
+
+    /**
+     * 恢复到生成完成时的状态（不计入耗时）：远程目标分支回到他人推送后的提交，
+     * 远程功能分支回到未推送最后一个提交时，本地目标分支与远程跟踪分支回到未获取前的提交，工作区位于功能分支
+     */
+    public void reset() throws IOException {
+        git.runChecked(origin, "update-ref", "refs/heads/" + TARGET_BRANCH, originTargetHead);
+        git.runChecked(origin, "update-ref", "refs/heads/" + FEATURE_BRANCH, pushedFeatureHead);
+        git.runChecked(work, "checkout", "--quiet", "-f", FEATURE_BRANCH);
+        git.runChecked(work, "reset", "--quiet", "--hard", featureHead);
+        git.runChecked(work, "update-ref", "refs/heads/" + TARGET_BRANCH, localTargetHead);
+        git.runChecked(work, "update-ref", "refs/remotes/origin/" + TARGET_BRANCH, localTargetHead);
+        git.runChecked(work, "update-ref", "refs/remotes/origin/" + FEATURE_BRANCH, pushedFeatureHead);
+    }
+
+    /**
+     * 删除生成的目录
+     */
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(baseDir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private String head() throws IOException {
+        return git.runChecked(work, "rev-parse", "HEAD").firstLine();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static void append(Path file, String content) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,116 @@
+package com.jiuji.mergetodev;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志渲染与输出格式化的微基准，输出模拟 fetch/merge/push 的真实行格式
+ * <pre>
+ * ./gradlew jmh -PjmhArgs="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogFormattingBenchmark {
+
+    /** 单条日志的输出行数 */
+    @Param({"1000", "10000", "100000"})
+    public int lines;
+
+    private List<String> stdoutLines;
+    private List<String> stderrLines;
+    private String stdout;
+    private String stderr;
+    private GitOperationLog log;
+
+    @Setup
+    public void setUp() {
+        stdoutLines = generate(lines);
+        stderrLines = generate(Math.max(1, lines / 10));
+        stdout = String.join("\n", stdoutLines);
+        stderr = String.join("\n", stderrLines);
+
+        // 一次合并的典型日志：多数命令输出很短，merge 输出较长，失败的 push 带错误信息
+        // 直接传入的输出完整保留在内存（只有逐行转发的命令才写入临时文件），渲染的是全部行
+        log = new GitOperationLog();
+        log.addSuccess("git fetch origin dev", " * branch dev -> FETCH_HEAD");
+        log.addSuccess("git checkout dev", "Switched to branch 'dev'");
+        log.addSuccess("git merge feature --no-edit", stdout);
+        log.addError("git push origin dev", stderr);
+    }
+
+    @TearDown
+    public void tearDown() {
+        log.close();
+    }
+
+    @Benchmark
+    public String toHtml() {
+        return log.toHtml();
+    }
+
+    @Benchmark
+    public String toPlainText() {
+        return log.toPlainText();
+    }
+
+    /**
+     * MergeLogConsole.printOutput 的缩进
+     */
+    @Benchmark
+    public String indentOutput() {
+        return GitOutputFormat.indent(stdout, "  ");
+    }
+
+    /**
+     * GitOperationHelper.getOutput(GitCommandResult)
+     */
+    @Benchmark
+    public String joinCommandOutput() {
+        return GitOutputFormat.joinLines(stdoutLines, stderrLines);
+    }
+
+    /**
+     * GitOperationHelper.getOutput(ProcessOutput)
+     */
+    @Benchmark
+    public String joinProcessOutput() {
+        return GitOutputFormat.joinText(stdout, stderr);
+    }
+
+    /**
+     * 生成 merge 统计、fetch 引用更新与含 HTML 特殊字符的拒绝信息混合的输出
+     */
+    static List<String> generate(int count) {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            switch (i % 4) {
+                case 0 -> result.add(" src/main/java/com/example/module" + (i % 97) + "/Service" + i + ".java | "
+                        + (i % 40 + 1) + " ++++++++--");
+                case 1 -> result.add("   " + Integer.toHexString(0x1000000 + i) + ".." + Integer.toHexString(0x2000000 + i)
+                        + "  feature-" + (i % 13) + " -> origin/feature-" + (i % 13));
+                case 2 -> result.add(" ! [rejected]        dev -> dev (fetch first) <" + i + "> & retry");
+                default -> result.add(" create mode 100644 src/main/resources/i18n/messages_" + i + ".properties");
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package com.jiuji.mergetodev;
+
+/**
+ * 领先/落后提交数
+ */
+public final class AheadBehind {
+    /** head 中有、base 中没有的提交数 */
+    public final int ahead;
+    /** base 中有、head 中没有的提交数 */
+    public final int behind;
+
+    public AheadBehind(int ahead, int behind) {
+        this.ahead = ahead;
+        this.behind = behind;
+    }
+}
@@ -0,0 +1,362 @@
+package com.jiuji.mergetodev;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 单个仓库的常驻 git cat-file --batch 进程：读取引用与提交对象，祖先与领先/落后关系在进程内遍历提交图计算
+ * 不依赖 IDE，插件（{@link GitBatchQueryService}）与基准测试共用；调用方负责串行访问，kill 可在任意线程调用
+ * 任何异常都以 IOException 抛出，进程随之结束，下次查询重新启动
+ */
+public final class CatFileBatch {
+
+    /** 单次遍历最多读取的提交数，超出时由调用方回退到 git rev-list */
+    private static final int MAX_WALK_COMMITS = 20_000;
+    /** 容忍的提交时间倒置（秒），超过时统计结果可能偏大 */
+    private static final long CLOCK_SKEW_SECONDS = 24 * 60 * 60;
+
+    private static final int LEFT = 1;
+    private static final int RIGHT = 2;
+    private static final int BOTH = LEFT | RIGHT;
+
+    private final String gitPath;
+    private final File workDir;
+    private volatile Process process;
+    private OutputStream stdin;
+    private InputStream stdout;
+    /** 进程是否因超时或释放被强制结束 */
+    private volatile boolean killed;
+    private int starts;
+
+    public CatFileBatch(String gitPath, File workDir) {
+        this.gitPath = gitPath;
+        this.workDir = workDir;
+    }
+
+    /**
+     * 解析引用对应的提交哈希
+     * @return 提交哈希，引用不存在时返回 null
+     */
+    public String revParse(String ref) throws IOException {
+        CatFileObject object = read(ref + "^{commit}");
+        return object == null ? null : object.hash;
+    }
+
+    /**
+     * 统计 head 相对 base 的领先/落后提交数，等价于 git rev-list --left-right --count base...head
+     * @param checkCanceled 每读取一个提交前调用，取消时抛出的异常原样传出（进程输入输出保持同步，可继续复用）
+     * @return 统计结果，任一引用不存在时返回 null
+     */
+    public AheadBehind aheadBehind(String base, String head, Runnable checkCanceled) throws IOException {
+        CatFileObject baseCommit = read(base + "^{commit}");
+        CatFileObject headCommit = read(head + "^{commit}");
+        if (baseCommit == null || headCommit == null) {
+            return null;
+        }
+        return walk(baseCommit, headCommit, checkCanceled);
+    }
+
+    /**
+     * 按提交时间从新到旧同时遍历两侧，标记每个提交可从哪一侧到达；
+     * 待遍历的提交都已可从两侧到达、且比所有单侧提交都旧（留出时间倒置余量）时停止，
+     * 只从一侧可达的提交即为领先/落后的提交
+     */
+    private AheadBehind walk(CatFileObject base, CatFileObject head, Runnable checkCanceled) throws IOException {
+        Map<String, CommitNode> nodes = new HashMap<>();
+        PriorityQueue<CommitNode> queue = new PriorityQueue<>((a, b) -> Long.compare(b.time, a.time));
+        WalkState state = new WalkState();
+
+        CommitNode left = nodes.computeIfAbsent(base.hash, hash -> CommitNode.parse(hash, base.content));
+        CommitNode right = nodes.computeIfAbsent(head.hash, hash -> CommitNode.parse(hash, head.content));
+        mark(left, LEFT, nodes, queue, state);
+        mark(right, RIGHT, nodes, queue, state);
+
+        long bound = Long.MAX_VALUE;
+        while (!queue.isEmpty()) {
+            // 只在两次读取之间检查取消，进程的输入输出保持同步
+            checkCanceled.run();
+            if (state.interesting == 0 && queue.peek().time < bound) {
+                // 此后只会产生共同提交；单侧提交只减不增，界限只升不降，过期时才重新计算
+                bound = oldestSingleSided(nodes) - CLOCK_SKEW_SECONDS;
+                if (queue.peek().time < bound) {
+                    break;
+                }
+            }
+            CommitNode node = queue.poll();
+            node.queued = false;
+            node.visited = true;
+            if (node.flags != BOTH) {
+                state.interesting--;
+            }
+            for (String parentHash : node.parents) {
+                CommitNode parent = nodes.get(parentHash);
+                if (parent == null) {
+                    if (nodes.size() >= MAX_WALK_COMMITS) {
+                        throw new IOException("提交图遍历超过 " + MAX_WALK_COMMITS + " 个提交");
+                    }
+                    CatFileObject object = read(parentHash);
+                    if (object == null) {
+                        // 浅克隆等情况下父提交不存在
+                        throw new IOException("缺少提交 " + parentHash);
+                    }
+                    parent = CommitNode.parse(parentHash, object.content);
+                    nodes.put(parentHash, parent);
+                }
+                mark(parent, node.flags, nodes, queue, state);
+            }
+        }
+
+        int ahead = 0;
+        int behind = 0;
+        for (CommitNode node : nodes.values()) {
+            if (node.flags == RIGHT) {
+                ahead++;
+            } else if (node.flags == LEFT) {
+                behind++;
+            }
+        }
+        return new AheadBehind(ahead, behind);
+    }
+
+    /**
+     * 只被一侧到达的提交中最早的提交时间，没有时返回 Long.MAX_VALUE
+     */
+    private static long oldestSingleSided(Map<String, CommitNode> nodes) {
+        long oldest = Long.MAX_VALUE;
+        for (CommitNode node : nodes.values()) {
+            if (node.flags != BOTH) {
+                oldest = Math.min(oldest, node.time);
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * 为提交加上标记：未遍历的提交加入待遍历队列；已遍历过的提交把新标记立即传给已读取的祖先，
+     * 提交时间倒置导致共同祖先较晚才被发现时，此前只被一侧标记的提交也能得到修正
+     */
+    private static void mark(CommitNode start, int flags, Map<String, CommitNode> nodes,
+                             PriorityQueue<CommitNode> queue, WalkState state) {
+        ArrayDeque<CommitNode> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            CommitNode node = stack.pop();
+            int merged = node.flags | flags;
+            if (merged == node.flags) {
+                continue;
+            }
+            if (node.queued && node.flags != BOTH && merged == BOTH) {
+                state.interesting--;
+            }
+            node.flags = merged;
+            if (node.visited) {
+                // 已遍历提交的父提交都已读取
+                for (String parentHash : node.parents) {
+                    stack.push(nodes.get(parentHash));
+                }
+            } else if (!node.queued) {
+                node.queued = true;
+                queue.add(node);
+                if (merged != BOTH) {
+                    state.interesting++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 进程未运行时启动
+     */
+    public void ensureStarted() throws IOException {
+        if (isRunning()) {
+            return;
+        }
+        Process current;
+        try {
+            current = new ProcessBuilder(gitPath, "cat-file", "--batch")
+                    .directory(workDir)
+                    .start();
+        } catch (IOException e) {
+            throw new IOException("无法启动 git cat-file --batch", e);
+        }
+        killed = false;
+        starts++;
+        stdin = current.getOutputStream();
+        stdout = new BufferedInputStream(current.getInputStream());
+        process = current;
+    }
+
+    /**
+     * 读取对象；对象不存在时返回 null，协议异常时结束进程并抛出异常（下次调用重新启动）
+     */
+    private CatFileObject read(String name) throws IOException {
+        if (name.indexOf('\n') >= 0) {
+            throw new IOException("非法的对象名：" + name);
+        }
+        ensureStarted();
+        try {
+            stdin.write((name + "\n").getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+
+            // "<hash> <type> <size>" 或 "<name> missing"
+            String header = readLine();
+            if (header.endsWith(" missing") || header.endsWith(" ambiguous")) {
+                return null;
+            }
+            String[] parts = header.split(" ");
+            if (parts.length != 3) {
+                throw new IOException("无法解析 cat-file 输出：" + header);
+            }
+            int size = Integer.parseInt(parts[2]);
+            byte[] content = stdout.readNBytes(size);
+            if (content.length != size || stdout.read() != '\n') {
+                throw new IOException("cat-file 输出不完整");
+            }
+            return new CatFileObject(parts[0], content);
+        } catch (IOException | RuntimeException e) {
+            stop();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = stdout.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("git cat-file 进程已退出");
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 进程是否在运行
+     */
+    public boolean isRunning() {
+        Process current = process;
+        return current != null && current.isAlive();
+    }
+
+    /**
+     * 结束进程
+     */
+    public void stop() {
+        Process current = process;
+        if (current != null) {
+            current.destroy();
+            process = null;
+        }
+    }
+
+    /**
+     * 强制结束进程，阻塞中的读取随即以 IOException 返回
+     */
+    public void kill() {
+        Process current = process;
+        if (current != null) {
+            killed = true;
+            current.destroyForcibly();
+        }
+    }
+
+    /**
+     * 进程是否因 kill 结束（下次启动时复位）
+     */
+    public boolean isKilled() {
+        return killed;
+    }
+
+    /**
+     * 启动过的进程数
+     */
+    public int getStarts() {
+        return starts;
+    }
+
+    /**
+     * 遍历过程中待遍历队列的统计
+     */
+    private static class WalkState {
+        /** 尚未被两侧同时到达的提交数 */
+        int interesting;
+    }
+
+    /**
+     * 提交图中的一个提交
+     */
+    private static class CommitNode {
+        final String hash;
+        final List<String> parents;
+        /** 提交时间（秒） */
+        final long time;
+        int flags;
+        boolean queued;
+        boolean visited;
+
+        private CommitNode(String hash, List<String> parents, long time) {
+            this.hash = hash;
+            this.parents = parents;
+            this.time = time;
+        }
+
+        /**
+         * 从提交对象内容中解析父提交与提交时间
+         */
+        static CommitNode parse(String hash, byte[] content) {
+            List<String> parents = new ArrayList<>(2);
+            long time = 0;
+            int start = 0;
+            while (start < content.length) {
+                int end = start;
+                while (end < content.length && content[end] != '\n') {
+                    end++;
+                }
+                if (end == start) {
+                    // 空行之后是提交信息
+                    break;
+                }
+                String line = new String(content, start, end - start, StandardCharsets.UTF_8);
+                if (line.startsWith("parent ")) {
+                    parents.add(line.substring(7).trim());
+                } else if (line.startsWith("committer ")) {
+                    String[] parts = line.split(" ");
+                    if (parts.length >= 2) {
+                        try {
+                            time = Long.parseLong(parts[parts.length - 2]);
+                        } catch (NumberFormatException ignored) {
+                            // 保持 0，按最旧处理
+                        }
+                    }
+                }
+                start = end + 1;
+            }
+            return new CommitNode(hash, parents, time);
+        }
+    }
+
+    /**
+     * cat-file 返回的对象
+     */
+    private static class CatFileObject {
+        final String hash;
+        final byte[] content;
+
+        CatFileObject(String hash, byte[] content) {
+            this.hash = hash;
+            this.content = content;
+        }
+    }
+}
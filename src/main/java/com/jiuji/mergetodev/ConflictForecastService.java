@@ -0,0 +1,135 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 冲突预测：仓库状态变化（提交、fetch 等）后在后台对当前分支与 origin/目标分支 做对象库内试合并，
+ * 结果按两端提交哈希缓存，合并前可立即提示预计冲突的文件，不触碰工作区
+ */
+@Service(Service.Level.PROJECT)
+public final class ConflictForecastService implements Disposable {
+
+    /** 缓存的试合并结果数，按最近使用淘汰 */
+    private static final int MAX_CACHED = 64;
+
+    private final Project project;
+    /** "当前提交..目标提交" → 试合并结果 */
+    private final Map<String, TreeMergeResult> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TreeMergeResult> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+    /** 已排队等待试合并的仓库，同一仓库的连续变化只计算一次 */
+    private final Set<String> pendingRoots = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Quick Merge Conflict Forecast", 1);
+
+    public ConflictForecastService(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(GitRepository.GIT_REPO_CHANGE, this::refresh);
+        for (GitRepository repository : GitUtil.getRepositories(project)) {
+            refresh(repository);
+        }
+    }
+
+    public static ConflictForecastService getInstance(@NotNull Project project) {
+        return project.getService(ConflictForecastService.class);
+    }
+
+    /**
+     * 获取缓存的预测结果，尚未计算时排队计算并返回 null
+     */
+    public @Nullable TreeMergeResult getForecast(@NotNull GitRepository repository, @NotNull String targetBranch) {
+        String key = key(repository, targetBranch);
+        if (key == null) {
+            return null;
+        }
+        TreeMergeResult result = cache.get(key);
+        if (result == null) {
+            refresh(repository);
+        }
+        return result;
+    }
+
+    /**
+     * 在当前线程计算预测（已缓存时直接返回），供预检查阶段调用
+     */
+    public @Nullable TreeMergeResult forecastNow(@NotNull GitRepository repository, @NotNull String targetBranch) {
+        if (!MergeToDevSettings.getInstance().isConflictForecast()) {
+            return null;
+        }
+        String head = repository.getCurrentRevision();
+        String target = MergeStateService.remoteHash(repository, targetBranch);
+        if (head == null || target == null) {
+            return null;
+        }
+        String key = head + ".." + target;
+        TreeMergeResult result = cache.get(key);
+        if (result == null) {
+            // 在锁外执行 git，读取缓存的 EDT 调用不会被阻塞
+            result = new GitRefQueries(project, repository.getRoot()).mergeTree(target, head);
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * 排队为仓库的所有目标分支计算预测
+     */
+    public void refresh(@NotNull GitRepository repository) {
+        if (!MergeToDevSettings.getInstance().isConflictForecast()) {
+            return;
+        }
+        String rootPath = repository.getRoot().getPath();
+        if (!pendingRoots.add(rootPath)) {
+            return;
+        }
+        executor.execute(() -> {
+            pendingRoots.remove(rootPath);
+            if (project.isDisposed()) {
+                return;
+            }
+            List<String> targets = MergeToDevSettings.getInstance().getTargetBranches();
+            for (String target : targets) {
+                if (!target.equals(repository.getCurrentBranchName())) {
+                    forecastNow(repository, target);
+                }
+            }
+        });
+    }
+
+    /**
+     * 缓存键：当前提交..origin/目标分支提交，任一端不存在时返回 null
+     */
+    private static @Nullable String key(GitRepository repository, String targetBranch) {
+        String head = repository.getCurrentRevision();
+        String target = MergeStateService.remoteHash(repository, targetBranch);
+        if (head == null || target == null) {
+            return null;
+        }
+        return head + ".." + target;
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        cache.clear();
+    }
+}
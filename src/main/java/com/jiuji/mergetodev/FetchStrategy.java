@@ -0,0 +1,197 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.text.StringUtil;
+import git4idea.commands.GitLineHandlerListener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * fetch 策略：减少大型远程仓库上 fetch 的协商与传输量
+ * <ul>
+ *   <li>--no-tags：不获取标签</li>
+ *   <li>显式 refspec：只更新 refs/remotes/origin/分支</li>
+ *   <li>--negotiation-tip：协商时只发送相关分支的提交，而不是本地所有引用</li>
+ *   <li>--filter：部分克隆过滤器（如 blob:none），首次使用会将仓库转为部分克隆</li>
+ * </ul>
+ */
+public final class FetchStrategy {
+
+    private final boolean noTags;
+    private final boolean explicitRefspec;
+    private final boolean limitNegotiation;
+    private final String filter;
+
+    public FetchStrategy(boolean noTags, boolean explicitRefspec, boolean limitNegotiation, String filter) {
+        this.noTags = noTags;
+        this.explicitRefspec = explicitRefspec;
+        this.limitNegotiation = limitNegotiation;
+        this.filter = filter == null ? "" : filter.trim();
+    }
+
+    /**
+     * 按当前配置创建
+     */
+    public static FetchStrategy fromSettings() {
+        MergeToDevSettings settings = MergeToDevSettings.getInstance();
+        return new FetchStrategy(settings.isFetchNoTags(), settings.isFetchExplicitRefspec(),
+                settings.isFetchLimitNegotiation(), settings.getFetchFilter());
+    }
+
+    /**
+     * 生成 origin 之前的选项（不含 refspec）
+     * @param revParse 解析引用，引用不存在时返回 null
+     * @param branches 本次获取的分支，协商只使用这些分支（及 extraTips）已存在的本地/远程跟踪引用
+     * @param extraTips 额外的协商分支，如当前分支
+     */
+    public List<String> options(Function<String, String> revParse, List<String> branches, String... extraTips) {
+        List<String> options = new ArrayList<>();
+        // 输出最终的传输进度，用于统计接收量
+        options.add("--progress");
+        if (noTags) {
+            options.add("--no-tags");
+        }
+        if (!filter.isEmpty()) {
+            options.add("--filter=" + filter);
+        }
+        if (limitNegotiation) {
+            Set<String> names = new LinkedHashSet<>(branches);
+            names.addAll(List.of(extraTips));
+            List<String> tips = new ArrayList<>();
+            for (String name : names) {
+                // 不存在的引用作为协商起点会使 fetch 直接失败
+                for (String ref : List.of("refs/remotes/origin/" + name, "refs/heads/" + name)) {
+                    if (revParse.apply(ref) != null) {
+                        tips.add("--negotiation-tip=" + ref);
+                    }
+                }
+            }
+            // 一个都不存在时不限定，由 git 使用所有引用协商
+            options.addAll(tips);
+        }
+        return options;
+    }
+
+    /**
+     * 生成 origin 之后的 refspec
+     */
+    public List<String> refspecs(List<String> branches) {
+        if (!explicitRefspec) {
+            return branches;
+        }
+        List<String> refspecs = new ArrayList<>(branches.size());
+        for (String branch : branches) {
+            refspecs.add("+refs/heads/" + branch + ":refs/remotes/origin/" + branch);
+        }
+        return refspecs;
+    }
+
+    /**
+     * 日志中显示的命令选项（省略 --progress 与协商起点的具体引用）
+     */
+    public String describe(List<String> options) {
+        List<String> shown = new ArrayList<>();
+        int tips = 0;
+        for (String option : options) {
+            if (option.startsWith("--negotiation-tip=")) {
+                tips++;
+            } else if (!option.equals("--progress")) {
+                shown.add(option);
+            }
+        }
+        if (tips > 0) {
+            shown.add("--negotiation-tip×" + tips);
+        }
+        return shown.isEmpty() ? "" : String.join(" ", shown) + " ";
+    }
+
+    /**
+     * 是否为中间进度行（"Receiving objects:  45% (...)"），这类行不输出到控制台
+     */
+    static boolean isProgressLine(String line) {
+        return Transfer.PROGRESS_LINE.matcher(line).find() && !line.trim().endsWith("done.");
+    }
+
+    /**
+     * 从 fetch 的进度输出中统计传输量
+     */
+    public static class Transfer implements GitLineHandlerListener {
+        /** "Receiving objects: 100% (122/122), 356.37 KiB | 59.39 MiB/s, done." */
+        private static final Pattern RECEIVED =
+                Pattern.compile("Receiving objects:\\s+100% \\((\\d+)/\\d+\\)(?:, ([\\d.]+) (bytes|KiB|MiB|GiB))?");
+        /** "remote: Total 3 (delta 1), reused 0 (delta 0)" */
+        private static final Pattern TOTAL = Pattern.compile("Total (\\d+) \\(delta");
+        private static final Pattern PROGRESS_LINE = Pattern.compile(":\\s+\\d{1,3}% \\(\\d+/\\d+\\)");
+
+        private volatile long objects = -1;
+        private volatile long bytes = -1;
+
+        @Override
+        public void onLineAvailable(String line, Key outputType) {
+            // 进度以 \r 刷新，只看最后一段
+            String text = line.substring(line.lastIndexOf('\r') + 1);
+            Matcher received = RECEIVED.matcher(text);
+            if (received.find()) {
+                objects = Long.parseLong(received.group(1));
+                if (received.group(2) != null) {
+                    bytes = toBytes(Double.parseDouble(received.group(2)), received.group(3));
+                }
+                return;
+            }
+            Matcher total = TOTAL.matcher(text);
+            if (total.find() && objects < 0) {
+                objects = Long.parseLong(total.group(1));
+            }
+        }
+
+        @Override
+        public void processTerminated(int exitCode) {
+        }
+
+        @Override
+        public void startFailed(@NotNull Throwable exception) {
+        }
+
+        /**
+         * @return 接收的字节数；对象较少时 git 直接解包而不输出大小，此时返回 -1
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return 接收的对象数，已是最新时返回 0
+         */
+        public long getObjects() {
+            return Math.max(0, objects);
+        }
+
+        /**
+         * 如 "356.4 KiB（122 个对象）"、"3 个对象"、"无新对象"
+         */
+        public String summary() {
+            if (getObjects() == 0) {
+                return "无新对象";
+            }
+            String count = getObjects() + " 个对象";
+            return bytes < 0 ? count : StringUtil.formatFileSize(bytes) + "（" + count + "）";
+        }
+
+        private static long toBytes(double value, String unit) {
+            return switch (unit.toLowerCase(Locale.ROOT)) {
+                case "kib" -> Math.round(value * 1024);
+                case "mib" -> Math.round(value * 1024 * 1024);
+                case "gib" -> Math.round(value * 1024 * 1024 * 1024);
+                default -> Math.round(value);
+            };
+        }
+    }
+}
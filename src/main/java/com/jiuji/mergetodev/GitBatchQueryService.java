@@ -0,0 +1,154 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.config.GitExecutableManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于常驻 git cat-file --batch 进程（{@link CatFileBatch}）的引用与提交查询：每个仓库一个进程，
+ * 引用解析与提交读取不再每次启动 git，祖先与领先/落后关系在进程内遍历提交图计算
+ * 任何异常都以 IOException 抛出，调用方回退到单独的 git 命令；单次查询超时时结束进程（下次查询重新启动）并同样回退
+ */
+@Service(Service.Level.PROJECT)
+public final class GitBatchQueryService implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(GitBatchQueryService.class);
+    /** 单次查询（含等待其他查询释放进程）的最长时间，超时后结束进程 */
+    private static final long QUERY_TIMEOUT_MS = 10_000;
+    /** 等待进程锁时检查取消的间隔 */
+    private static final long LOCK_POLL_MS = 50;
+
+    private final Project project;
+    /** 仓库根目录 → 常驻进程 */
+    private final Map<String, BatchProcess> processes = new ConcurrentHashMap<>();
+    private volatile boolean disposed;
+
+    public GitBatchQueryService(Project project) {
+        this.project = project;
+    }
+
+    public static GitBatchQueryService getInstance(@NotNull Project project) {
+        return project.getService(GitBatchQueryService.class);
+    }
+
+    /**
+     * 解析引用对应的提交哈希
+     * @return 提交哈希，引用不存在时返回 null
+     */
+    public @Nullable String revParse(@NotNull VirtualFile root, @NotNull String ref) throws IOException {
+        return query(root, process -> process.revParse(ref));
+    }
+
+    /**
+     * 判断 ancestor 是否为 descendant 的祖先提交，任一引用不存在时返回 false
+     */
+    public boolean isAncestor(@NotNull VirtualFile root, @NotNull String ancestor, @NotNull String descendant) throws IOException {
+        AheadBehind result = aheadBehind(root, ancestor, descendant);
+        return result != null && result.behind == 0;
+    }
+
+    /**
+     * 统计 head 相对 base 的领先/落后提交数，等价于 git rev-list --left-right --count base...head
+     * @return 统计结果，任一引用不存在时返回 null
+     */
+    public @Nullable AheadBehind aheadBehind(@NotNull VirtualFile root, @NotNull String base,
+                                             @NotNull String head) throws IOException {
+        // 只在两次读取之间检查取消，进程的输入输出保持同步，可继续复用
+        return query(root, process -> process.aheadBehind(base, head, ProgressManager::checkCanceled));
+    }
+
+    /**
+     * 独占仓库的常驻进程执行查询；等待或执行超过 QUERY_TIMEOUT_MS 时结束进程并抛出 IOException
+     */
+    private <T> T query(VirtualFile root, Query<T> query) throws IOException {
+        if (disposed) {
+            throw new IOException("服务已释放");
+        }
+        BatchProcess process = processes.computeIfAbsent(root.getPath(),
+                path -> new BatchProcess(GitExecutableManager.getInstance().getPathToGit(project), path));
+        long deadline = System.currentTimeMillis() + QUERY_TIMEOUT_MS;
+        acquire(process.lock, deadline);
+        CatFileBatch batch = process.batch;
+        try {
+            if (!batch.isRunning()) {
+                batch.ensureStarted();
+                LOG.debug("Started git cat-file --batch in " + root.getPath());
+            }
+            long remaining = Math.max(1, deadline - System.currentTimeMillis());
+            ScheduledFuture<?> watchdog = AppExecutorUtil.getAppScheduledExecutorService()
+                    .schedule(batch::kill, remaining, TimeUnit.MILLISECONDS);
+            try {
+                return query.run(batch);
+            } catch (IOException e) {
+                if (batch.isKilled()) {
+                    throw new IOException("git cat-file 查询超过 " + QUERY_TIMEOUT_MS + " ms，已结束进程", e);
+                }
+                throw e;
+            } finally {
+                watchdog.cancel(false);
+            }
+        } finally {
+            process.lock.unlock();
+        }
+    }
+
+    /**
+     * 等待进程锁，期间响应取消；到达截止时间仍未获得时抛出 IOException
+     */
+    private static void acquire(ReentrantLock lock, long deadline) throws IOException {
+        try {
+            while (!lock.tryLock(LOCK_POLL_MS, TimeUnit.MILLISECONDS)) {
+                ProgressManager.checkCanceled();
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("等待 git cat-file 进程超时");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        for (BatchProcess process : processes.values()) {
+            process.batch.kill();
+        }
+        processes.clear();
+    }
+
+    /**
+     * 在常驻进程上执行的查询
+     */
+    private interface Query<T> {
+        T run(CatFileBatch process) throws IOException;
+    }
+
+    /**
+     * 单个仓库的常驻进程及其锁（查询需持有 lock）
+     */
+    private static class BatchProcess {
+        final ReentrantLock lock = new ReentrantLock();
+        final CatFileBatch batch;
+
+        BatchProcess(String gitPath, String rootPath) {
+            this.batch = new CatFileBatch(gitPath, new File(rootPath));
+        }
+    }
+}
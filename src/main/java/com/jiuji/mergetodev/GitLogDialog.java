@@ -1,25 +1,59 @@
 package com.jiuji.mergetodev;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.ColoredListCellRenderer;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.ui.components.JBList;
 import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Git 操作日志展示对话框
+ * 每条命令一行，输出默认折叠；展开时在后台按行拆分（写入临时文件的输出内存映射读取），
+ * 列表行按需生成、只渲染可见行，打开耗时与日志大小无关
  */
 public class GitLogDialog extends DialogWrapper {
 
+    private static final SimpleTextAttributes SUCCESS_ATTRIBUTES =
+            new SimpleTextAttributes(SimpleTextAttributes.STYLE_BOLD, new JBColor(0x2e7d32, 0x6aab73));
+    private static final SimpleTextAttributes ERROR_ATTRIBUTES =
+            new SimpleTextAttributes(SimpleTextAttributes.STYLE_BOLD, new JBColor(0xc62828, 0xf75464));
+
     private final GitOperationLog log;
     private final String title;
+    private final List<GitOperationLog.LogEntry> entries;
+    private LogListModel model;
+    /** 正在后台拆分输出的条目，避免重复展开 */
+    private final Set<GitOperationLog.LogEntry> loading = ConcurrentHashMap.newKeySet();
+    private JBList<Row> list;
 
     public GitLogDialog(Project project, String title, GitOperationLog log) {
         super(project, true);
         this.title = title;
         this.log = log;
+        this.entries = log.getEntries();
         setTitle(title);
         init();
     }
@@ -29,14 +63,32 @@ public class GitLogDialog extends DialogWrapper {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setPreferredSize(new Dimension(600, 400));
 
-        // 使用 JEditorPane 显示 HTML 格式的日志
-        JEditorPane editorPane = new JEditorPane();
-        editorPane.setEditable(false);
-        editorPane.setContentType("text/html");
-        editorPane.setText(log.toHtml());
-        editorPane.setCaretPosition(0);
+        model = new LogListModel();
+        list = new JBList<>(model);
+        list.setFont(new Font(Font.MONOSPACED, Font.PLAIN, JBUI.scaleFontSize(12f)));
+        // 固定行高与行宽，布局时无需逐行测量
+        list.setFixedCellHeight(JBUI.scale(20));
+        list.setFixedCellWidth(JBUI.scale(1600));
+        list.setCellRenderer(new RowRenderer());
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    toggle(index);
+                }
+            }
+        });
+        list.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER && list.getSelectedIndex() >= 0) {
+                    toggle(list.getSelectedIndex());
+                }
+            }
+        });
 
-        JBScrollPane scrollPane = new JBScrollPane(editorPane);
+        JBScrollPane scrollPane = new JBScrollPane(list);
         panel.add(scrollPane, BorderLayout.CENTER);
 
         // 状态栏
@@ -47,11 +99,203 @@ public class GitLogDialog extends DialogWrapper {
         statusPanel.add(statusLabel);
         panel.add(statusPanel, BorderLayout.SOUTH);
 
+        // 失败命令的输出默认展开
+        for (GitOperationLog.LogEntry entry : entries) {
+            if (!entry.success && hasOutput(entry)) {
+                expand(entry);
+            }
+        }
         return panel;
     }
 
+    /**
+     * 点击标题行时展开或折叠该条目的输出
+     */
+    private void toggle(int index) {
+        Row row = model.getElementAt(index);
+        if (!row.isHeader() || !hasOutput(row.entry)) {
+            return;
+        }
+        if (!model.collapse(row.entry)) {
+            expand(row.entry);
+        }
+    }
+
+    /**
+     * 在后台准备输出行，完成后在 EDT 插入到标题行之后
+     */
+    private void expand(GitOperationLog.LogEntry entry) {
+        if (!loading.add(entry)) {
+            return;
+        }
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            LineSource lines = loadLines(entry);
+            // 首次展开发生在对话框显示之前，此时无法取得对话框的模态状态；任意模态下都只更新本对话框的列表
+            ApplicationManager.getApplication().invokeLater(() -> {
+                loading.remove(entry);
+                model.expand(entry, lines);
+            }, ModalityState.any());
+        });
+    }
+
+    /**
+     * 写入临时文件的输出按行映射读取，其余按行拆分
+     */
+    private static LineSource loadLines(GitOperationLog.LogEntry entry) {
+        if (entry.spilled != null) {
+            try {
+                SpilledOutput.Lines lines = entry.spilled.openLines();
+                return new LineSource() {
+                    @Override
+                    public int size() {
+                        return lines.getLineCount();
+                    }
+
+                    @Override
+                    public String get(int index) {
+                        return lines.getLine(index);
+                    }
+                };
+            } catch (IOException e) {
+                // 临时文件已被清理时退回内存中的末尾
+            }
+        }
+        List<String> lines = StringUtil.split(StringUtil.notNullize(entry.output), "\n", true, false);
+        return new LineSource() {
+            @Override
+            public int size() {
+                return lines.size();
+            }
+
+            @Override
+            public String get(int index) {
+                return lines.get(index);
+            }
+        };
+    }
+
+    private static boolean hasOutput(GitOperationLog.LogEntry entry) {
+        return entry.spilled != null || entry.output != null && !entry.output.isBlank();
+    }
+
     @Override
     protected Action[] createActions() {
         return new Action[]{getOKAction()};
     }
+
+    /**
+     * 一个条目展开后的输出行
+     */
+    private interface LineSource {
+        int size();
+
+        String get(int index);
+    }
+
+    /**
+     * 列表中的一行：命令标题行（lines 为 null）或一行输出
+     */
+    private static class Row {
+        final GitOperationLog.LogEntry entry;
+        final LineSource lines;
+        final int index;
+
+        Row(GitOperationLog.LogEntry entry, LineSource lines, int index) {
+            this.entry = entry;
+            this.lines = lines;
+            this.index = index;
+        }
+
+        boolean isHeader() {
+            return lines == null;
+        }
+    }
+
+    /**
+     * 虚拟列表模型：只记录各标题行的位置，行对象在渲染时按需生成
+     */
+    private class LogListModel extends AbstractListModel<Row> {
+        /** 已展开条目 → 输出行 */
+        private final Map<GitOperationLog.LogEntry, LineSource> expanded = new IdentityHashMap<>();
+        /** 各条目标题行的行号 */
+        private int[] headerRows = new int[0];
+        private int size;
+
+        LogListModel() {
+            recompute();
+        }
+
+        boolean isExpanded(GitOperationLog.LogEntry entry) {
+            return expanded.containsKey(entry);
+        }
+
+        void expand(GitOperationLog.LogEntry entry, LineSource lines) {
+            if (expanded.containsKey(entry) || lines.size() == 0) {
+                return;
+            }
+            expanded.put(entry, lines);
+            int header = headerRows[entries.indexOf(entry)];
+            recompute();
+            fireContentsChanged(this, header, header);
+            fireIntervalAdded(this, header + 1, header + lines.size());
+        }
+
+        /**
+         * @return 条目原本是否已展开
+         */
+        boolean collapse(GitOperationLog.LogEntry entry) {
+            LineSource lines = expanded.remove(entry);
+            if (lines == null) {
+                return false;
+            }
+            int header = headerRows[entries.indexOf(entry)];
+            recompute();
+            fireIntervalRemoved(this, header + 1, header + lines.size());
+            fireContentsChanged(this, header, header);
+            return true;
+        }
+
+        private void recompute() {
+            headerRows = new int[entries.size()];
+            int row = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                headerRows[i] = row;
+                LineSource lines = expanded.get(entries.get(i));
+                row += 1 + (lines == null ? 0 : lines.size());
+            }
+            size = row;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public Row getElementAt(int index) {
+            int position = Arrays.binarySearch(headerRows, index);
+            if (position >= 0) {
+                return new Row(entries.get(position), null, 0);
+            }
+            int entryIndex = -position - 2;
+            GitOperationLog.LogEntry entry = entries.get(entryIndex);
+            return new Row(entry, expanded.get(entry), index - headerRows[entryIndex] - 1);
+        }
+    }
+
+    private class RowRenderer extends ColoredListCellRenderer<Row> {
+        @Override
+        protected void customizeCellRenderer(@NotNull JList<? extends Row> list, Row row, int index,
+                                             boolean selected, boolean hasFocus) {
+            setFont(list.getFont());
+            if (!row.isHeader()) {
+                append("    " + row.lines.get(row.index), SimpleTextAttributes.GRAY_ATTRIBUTES);
+                return;
+            }
+            GitOperationLog.LogEntry entry = row.entry;
+            String arrow = !hasOutput(entry) ? "  " : model.isExpanded(entry) ? "▼ " : "▶ ";
+            append(arrow, SimpleTextAttributes.GRAY_ATTRIBUTES);
+            append((entry.success ? "✓ " : "✗ ") + entry.operation, entry.success ? SUCCESS_ATTRIBUTES : ERROR_ATTRIBUTES);
+        }
+    }
 }
@@ -1,156 +1,238 @@
 package com.jiuji.mergetodev;
 
+import com.intellij.dvcs.repo.Repository;
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vcs.FilePath;
+import com.intellij.openapi.vcs.changes.Change;
 import com.intellij.openapi.vcs.changes.ChangeListManager;
+import com.intellij.openapi.vcs.changes.ContentRevision;
 import com.intellij.openapi.vfs.VirtualFile;
-import git4idea.commands.Git;
+import com.intellij.vcsUtil.VcsFileUtil;
 import git4idea.commands.GitCommand;
 import git4idea.commands.GitCommandResult;
 import git4idea.commands.GitLineHandler;
+import git4idea.commands.GitLineHandlerListener;
 import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Git 操作工具类（实时日志版本）
  */
-public class GitOperationHelper {
+public class GitOperationHelper implements MergeGit {
 
     private final Project project;
     private final GitRepository repository;
     private final VirtualFile root;
-    private final Git git;
     private final MergeLogConsole console;
+    private final GitRefQueries queries;
+    /** 本次操作各 git 调用的耗时、输出量与退出码 */
+    private final GitOperationLog operationLog = new GitOperationLog();
+    /** 日志是否已登记随控制台关闭 */
+    private boolean logRegistered;
 
     public GitOperationHelper(Project project, GitRepository repository, MergeLogConsole console) {
         this.project = project;
         this.repository = repository;
         this.root = repository.getRoot();
-        this.git = Git.getInstance();
         this.console = console;
+        this.queries = new GitRefQueries(project, root);
     }
 
     /**
-     * 检查是否有未提交的更改
+     * 获取本次操作的 git 调用记录
      */
+    public GitOperationLog getOperationLog() {
+        return operationLog;
+    }
+
+    /**
+     * 检查当前仓库是否有未提交的更改
+     */
+    @Override
     public boolean hasUncommittedChanges() {
         ChangeListManager changeListManager = ChangeListManager.getInstance(project);
-        return !changeListManager.getAllChanges().isEmpty();
+        return !changeListManager.getChangesIn(root).isEmpty();
+    }
+
+    /**
+     * 以 git status 重新检查工作区，用于可能刚被其他合并提交过的场景（{@link #hasUncommittedChanges} 读取的缓存可能滞后）
+     */
+    public boolean hasWorkingTreeChanges() {
+        long start = System.nanoTime();
+        boolean changed = queries.hasWorkingTreeChanges();
+        recordQuery("git status --porcelain", start, true);
+        return changed;
     }
 
     /**
      * 获取本地分支领先远程的提交数
      * @return 领先的提交数，-1 表示远程分支不存在
      */
+    @Override
     public int getAheadCount(String branch) {
-        // git rev-list --count origin/branch..branch
-        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.REV_LIST);
-        handler.addParameters("--count", "origin/" + branch + ".." + branch);
-        GitCommandResult result = git.runCommand(handler);
-        
-        if (!result.success()) {
-            // 远程分支可能不存在
-            return -1;
-        }
-        
-        try {
-            String output = String.join("", result.getOutput()).trim();
-            return Integer.parseInt(output);
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+        // 等价于 git rev-list --count origin/branch..branch，由常驻查询进程回答
+        long start = System.nanoTime();
+        AheadBehind counts = queries.aheadBehind("origin/" + branch, branch);
+        recordQuery("git rev-list --count origin/" + branch + ".." + branch, start, counts != null);
+
+        // 远程分支可能不存在
+        return counts == null ? -1 : counts.ahead;
     }
 
     /**
-     * fetch 当前分支（静默，不打印日志）
+     * fetch 分支（静默，不打印日志），多个分支合并为一次网络请求；超时后终止 git 进程并返回 false
      */
-    public boolean fetchSilent(String branch) {
+    @Override
+    public boolean fetchSilent(String... branches) {
+        FetchStrategy strategy = FetchStrategy.fromSettings();
+        List<String> names = List.of(branches);
+        List<String> options = strategy.options(queries::revParse, names, currentBranchTips());
         GitLineHandler handler = new GitLineHandler(project, root, GitCommand.FETCH);
-        handler.addParameters("origin", branch);
-        GitCommandResult result = git.runCommand(handler);
+        handler.addParameters(options);
+        handler.addParameters("origin");
+        handler.addParameters(strategy.refspecs(names));
+        FetchStrategy.Transfer transfer = new FetchStrategy.Transfer();
+        handler.addLineListener(transfer);
+        // 预检查阶段的 fetch 单独统计
+        String cmd = "git fetch(预检查) " + strategy.describe(options) + "origin " + String.join(" ", branches);
+        long start = System.nanoTime();
+        GitCommandResult result;
+        try {
+            result = runWithTimeout(handler, true, true);
+        } catch (TimeoutException e) {
+            operationLog.add(new GitOperationLog.TimedEntry(stepName(cmd), cmd, e.getMessage(), false,
+                    elapsedMs(start), -1, 0, 0));
+            return false;
+        }
+        record(cmd, start, result);
+        if (result.success()) {
+            operationLog.addSuccess("fetch(预检查) 接收：" + transfer.summary(), null);
+        }
         return result.success();
     }
 
     /**
      * 添加所有文件并提交
      */
+    @Override
     public boolean commitAll(String message) {
-        // git add .
-        console.printInfo("执行: git add .");
-        GitLineHandler addHandler = new GitLineHandler(project, root, GitCommand.ADD);
-        addHandler.addParameters(".");
-        GitCommandResult addResult = git.runCommand(addHandler);
-
-        if (!addResult.success()) {
-            console.printError("git add . 失败");
-            console.printOutput(getOutput(addResult));
+        if (!stageChanges()) {
             return false;
         }
-        console.printSuccess("git add . 完成");
 
         // git commit -m "message"
-        String cmd = "git commit -m \"" + message + "\"";
-        console.printInfo("执行: " + cmd);
         GitLineHandler commitHandler = new GitLineHandler(project, root, GitCommand.COMMIT);
         commitHandler.addParameters("-m", message);
-        GitCommandResult commitResult = git.runCommand(commitHandler);
+        return runStreaming(commitHandler, "git commit -m \"" + message + "\"", new GitOutputTail());
+    }
 
-        if (!commitResult.success()) {
-            console.printError(cmd + " 失败");
-            console.printOutput(getOutput(commitResult));
-            return false;
-        }
-        console.printSuccess(cmd + " 完成");
-        String output = getOutput(commitResult);
-        if (!output.isEmpty()) {
-            console.printOutput(output);
+    /**
+     * 暂存更改：优先只暂存 IDE 已知的变更路径，耗时与变更数量成正比而不是仓库大小
+     */
+    private boolean stageChanges() {
+        if (MergeToDevSettings.getInstance().isStageKnownChangesOnly()) {
+            List<FilePath> paths = collectChangedPaths();
+            if (!paths.isEmpty()) {
+                if (stagePaths(paths)) {
+                    return true;
+                }
+                console.printInfo("按路径暂存失败，改用 git add .");
+            }
         }
-        return true;
+
+        // git add .
+        GitLineHandler addHandler = new GitLineHandler(project, root, GitCommand.ADD);
+        addHandler.addParameters(".");
+        return runStreaming(addHandler, "git add .", new GitOutputTail());
     }
 
     /**
-     * fetch 远程分支
+     * 收集 ChangeListManager 已知的本仓库变更路径（含重命名前路径与未版本化文件）
      */
-    public boolean fetch(String branch) {
-        String cmd = "git fetch origin " + branch;
-        console.printInfo("执行: " + cmd);
+    private List<FilePath> collectChangedPaths() {
+        ChangeListManager changeListManager = ChangeListManager.getInstance(project);
+        Set<FilePath> paths = new LinkedHashSet<>();
+        for (Change change : changeListManager.getChangesIn(root)) {
+            ContentRevision before = change.getBeforeRevision();
+            if (before != null) {
+                paths.add(before.getFile());
+            }
+            ContentRevision after = change.getAfterRevision();
+            if (after != null) {
+                paths.add(after.getFile());
+            }
+        }
+        for (FilePath path : changeListManager.getUnversionedFilesPaths()) {
+            if (FileUtil.isAncestor(root.getPath(), path.getPath(), false)) {
+                paths.add(path);
+            }
+        }
+        return new ArrayList<>(paths);
+    }
 
-        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.FETCH);
-        handler.addParameters("origin", branch);
-        GitCommandResult result = git.runCommand(handler);
+    /**
+     * git add --all -- 路径...，按命令行长度限制分批执行
+     */
+    private boolean stagePaths(List<FilePath> paths) {
+        List<List<String>> chunks = VcsFileUtil.chunkPaths(root, paths);
+        for (int i = 0; i < chunks.size(); i++) {
+            List<String> chunk = chunks.get(i);
+            String cmd = "git add --all -- <" + chunk.size() + " 个路径>"
+                    + (chunks.size() > 1 ? "（第 " + (i + 1) + "/" + chunks.size() + " 批）" : "");
 
-        if (!result.success()) {
-            console.printError(cmd + " 失败");
-            console.printOutput(getOutput(result));
-            return false;
-        }
-        console.printSuccess(cmd + " 完成");
-        String output = getOutput(result);
-        if (!output.isEmpty()) {
-            console.printOutput(output);
+            GitLineHandler handler = new GitLineHandler(project, root, GitCommand.ADD);
+            handler.addParameters("--all");
+            handler.endOptions();
+            handler.addParameters(chunk);
+            if (!runStreaming(handler, cmd, new GitOutputTail())) {
+                return false;
+            }
         }
         return true;
     }
 
+    /**
+     * fetch 远程分支，多个分支合并为一次网络请求
+     */
+    @Override
+    public boolean fetch(String... branches) {
+        FetchStrategy strategy = FetchStrategy.fromSettings();
+        List<String> names = List.of(branches);
+        List<String> options = strategy.options(queries::revParse, names, currentBranchTips());
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.FETCH);
+        handler.addParameters(options);
+        handler.addParameters("origin");
+        handler.addParameters(strategy.refspecs(names));
+        return runFetch(handler, "git fetch " + strategy.describe(options) + "origin " + String.join(" ", branches));
+    }
+
     /**
      * 切换分支
      */
+    @Override
     public boolean checkout(String branch) {
-        String cmd = "git checkout " + branch;
-        console.printInfo("执行: " + cmd);
-
         GitLineHandler handler = new GitLineHandler(project, root, GitCommand.CHECKOUT);
         handler.addParameters(branch);
-        GitCommandResult result = git.runCommand(handler);
-
-        if (!result.success()) {
-            console.printError(cmd + " 失败");
-            console.printOutput(getOutput(result));
+        if (!runStreaming(handler, "git checkout " + branch, new GitOutputTail())) {
             return false;
         }
-        console.printSuccess(cmd + " 完成");
-        String output = getOutput(result);
-        if (!output.isEmpty()) {
-            console.printOutput(output);
-        }
 
         // 刷新仓库状态
         repository.update();
@@ -158,91 +240,419 @@ public class GitOperationHelper {
     }
 
     /**
-     * 拉取当前分支
+     * 执行 fetch 并在日志中报告接收量
      */
-    public boolean pull(String branch) {
-        String cmd = "git pull origin " + branch;
-        console.printInfo("执行: " + cmd);
-
-        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.PULL);
-        handler.addParameters("origin", branch);
-        GitCommandResult result = git.runCommand(handler);
-
-        if (!result.success()) {
-            console.printError(cmd + " 失败");
-            console.printOutput(getOutput(result));
+    private boolean runFetch(GitLineHandler handler, String cmd) {
+        FetchStrategy.Transfer transfer = new FetchStrategy.Transfer();
+        handler.addLineListener(transfer);
+        if (!runStreaming(handler, cmd, new GitOutputTail(), true)) {
             return false;
         }
-        console.printSuccess(cmd + " 完成");
-        String output = getOutput(result);
-        if (!output.isEmpty()) {
-            console.printOutput(output);
-        }
+        console.printInfo("接收：" + transfer.summary());
+        operationLog.addSuccess(stepName(cmd).substring(4) + " 接收：" + transfer.summary(), null);
         return true;
     }
 
+    /**
+     * 当前分支作为额外的协商起点
+     */
+    private String[] currentBranchTips() {
+        String current = repository.getCurrentBranchName();
+        return current == null ? new String[0] : new String[]{current};
+    }
+
+    @Override
+    public void refresh() {
+        repository.update();
+    }
+
+    @Override
+    public String currentBranch() {
+        return repository.getCurrentBranchName();
+    }
+
+    @Override
+    public boolean isMerging() {
+        return repository.getState() == Repository.State.MERGING;
+    }
+
+    /**
+     * 放弃进行中的合并（git merge --abort），取消或冲突后恢复工作区时使用
+     */
+    @Override
+    public boolean abortMerge() {
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.MERGE);
+        handler.addParameters("--abort");
+        return runStreaming(handler, "git merge --abort", new GitOutputTail());
+    }
+
     /**
      * 合并指定分支到当前分支
      */
+    @Override
     public boolean merge(String branch) {
-        String cmd = "git merge " + branch + " --no-edit";
-        console.printInfo("执行: " + cmd);
-
         GitLineHandler handler = new GitLineHandler(project, root, GitCommand.MERGE);
         handler.addParameters(branch, "--no-edit");
-        GitCommandResult result = git.runCommand(handler);
+        return runStreaming(handler, "git merge " + branch + " --no-edit", new GitOutputTail());
+    }
+
+    /**
+     * 推送到远程，多个 refspec 合并为一次推送
+     * 支持分支名或 "提交哈希:refs/heads/分支" 形式
+     */
+    @Override
+    public boolean push(String... refspecs) {
+        return push(false, refspecs);
+    }
+
+    /**
+     * 推送到远程
+     * @param atomic 使用 --atomic，所有 refspec 要么全部更新要么全部不更新
+     */
+    public boolean push(boolean atomic, String... refspecs) {
+        return pushForResult(atomic, refspecs).success;
+    }
+
+    /**
+     * 推送到远程并解析被拒绝的分支，供竞争重试判断
+     */
+    @Override
+    public PushResult pushForResult(boolean atomic, String... refspecs) {
+        List<String> display = new ArrayList<>();
+        for (String refspec : refspecs) {
+            display.add(displayRefspec(refspec));
+        }
+        String cmd = "git push " + (atomic ? "--atomic " : "") + "origin " + String.join(" ", display);
+
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.PUSH);
+        if (atomic) {
+            handler.addParameters("--atomic");
+        }
+        handler.addParameters("origin");
+        handler.addParameters(refspecs);
+        GitOutputTail tail = new GitOutputTail();
+        if (runStreaming(handler, cmd, tail, true)) {
+            return PushResult.SUCCESS;
+        }
+        if (atomic && tail.contains("does not support --atomic")) {
+            // 远程不支持原子推送时退回普通推送
+            console.printInfo("远程不支持 --atomic，改用普通推送");
+            return pushForResult(false, refspecs);
+        }
+        return PushResult.parse(tail.getLines());
+    }
+
+    private boolean runStreaming(GitLineHandler handler, String cmd, GitOutputTail tail) {
+        return runStreaming(handler, cmd, tail, false);
+    }
+
+    /**
+     * 执行命令并将输出逐行实时转发到控制台，内存中只保留输出末尾用于失败判断
+     * 超时或取消时终止 git 进程；取消时记录后继续抛出 ProcessCanceledException
+     * @param network 是否访问远程（使用网络步骤超时）
+     */
+    private boolean runStreaming(GitLineHandler handler, String cmd, GitOutputTail tail, boolean network) {
+        console.printInfo("执行: " + cmd);
+        handler.addLineListener(new StreamingListener(tail));
+        long start = System.nanoTime();
+        GitCommandResult result;
+        try {
+            result = runWithTimeout(handler, network, false);
+        } catch (TimeoutException e) {
+            addStreamed(new GitOperationLog.TimedEntry(stepName(cmd), cmd, e.getMessage(), false,
+                    elapsedMs(start), -1, tail.getTotalLines(), tail.getTotalBytes(), tail.finishSpill()));
+            console.printError(cmd + " " + e.getMessage() + "，已终止");
+            return false;
+        } catch (ProcessCanceledException e) {
+            addStreamed(new GitOperationLog.TimedEntry(stepName(cmd), cmd, "已取消", false,
+                    elapsedMs(start), -1, tail.getTotalLines(), tail.getTotalBytes(), tail.finishSpill()));
+            console.printError(cmd + " 已取消");
+            throw e;
+        }
+        addStreamed(new GitOperationLog.TimedEntry(stepName(cmd), cmd, result.success() ? null : tail.toString(),
+                result.success(), elapsedMs(start), result.getExitCode(), tail.getTotalLines(), tail.getTotalBytes(),
+                tail.finishSpill()));
 
         if (!result.success()) {
+            if (tail.isEmpty()) {
+                // 进程未能启动等情况没有逐行输出，使用结果中的错误信息
+                console.printOutput(getOutput(result));
+            }
             console.printError(cmd + " 失败");
-            console.printOutput(getOutput(result));
             return false;
         }
         console.printSuccess(cmd + " 完成");
-        String output = getOutput(result);
-        if (!output.isEmpty()) {
-            console.printOutput(output);
-        }
         return true;
     }
 
     /**
-     * 推送当前分支到远程
+     * 记录逐行转发的命令；首次产生临时文件时，日志随控制台日志页一起关闭（下次合并替换日志页或项目关闭时删除临时文件）
+     */
+    private void addStreamed(GitOperationLog.TimedEntry entry) {
+        if (entry.spilled != null && !logRegistered) {
+            logRegistered = true;
+            Disposable closeLog = operationLog::close;
+            if (!Disposer.tryRegister(console.getLifetime(), closeLog)) {
+                operationLog.close();
+            }
+        }
+        operationLog.add(entry);
+    }
+
+    /**
+     * 在当前进度下以单步超时执行；Git4Idea 检测到进度取消后终止 git 进程
+     * @param network       是否访问远程（使用网络步骤超时）
+     * @param collectOutput 是否在结果中保留输出（逐行转发到控制台的命令不保留）
+     */
+    private GitCommandResult runWithTimeout(GitLineHandler handler, boolean network, boolean collectOutput)
+            throws TimeoutException {
+        return queries.runWithTimeout(handler, stepTimeoutMs(network), collectOutput);
+    }
+
+    /**
+     * 单步超时（毫秒），0 表示不限时
      */
-    public boolean push(String branch) {
-        String cmd = "git push origin " + branch;
+    static long stepTimeoutMs(boolean network) {
+        MergeToDevSettings settings = MergeToDevSettings.getInstance();
+        return TimeUnit.SECONDS.toMillis(network ? settings.getNetworkStepTimeoutSeconds() : settings.getLocalStepTimeoutSeconds());
+    }
+
+    /**
+     * 解析引用对应的提交哈希
+     * @return 提交哈希，引用不存在时返回 null
+     */
+    @Override
+    public String revParse(String ref) {
+        long start = System.nanoTime();
+        String commit = queries.revParse(ref);
+        recordQuery("git rev-parse " + ref, start, commit != null);
+        return commit;
+    }
+
+    /**
+     * 在对象库中试合并两个提交，不触碰工作区和索引
+     * git merge-tree --write-tree --name-only --no-messages ours theirs
+     */
+    @Override
+    public TreeMergeResult mergeTree(String ours, String theirs) {
+        String cmd = "git merge-tree --write-tree " + ours + " " + theirs;
         console.printInfo("执行: " + cmd);
 
-        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.PUSH);
-        handler.addParameters("origin", branch);
-        GitCommandResult result = git.runCommand(handler);
+        ProcessOutput output = runRaw(cmd, TreeMergeResult.args(ours, theirs));
+        TreeMergeResult result = GitRefQueries.parseMergeTree(output);
+        switch (result.status) {
+            case UNSUPPORTED -> {
+                // git 2.38 以下不支持 --write-tree
+                console.printError(cmd + " 失败");
+                if (output != null) {
+                    console.printOutput(getOutput(output));
+                }
+            }
+            case CONFLICT -> {
+                console.printError(cmd + " 存在冲突");
+                console.printOutput(String.join("\n", result.conflicts));
+            }
+            case CLEAN -> console.printSuccess(cmd + " 完成");
+        }
+        return result;
+    }
+
+    /**
+     * 基于合并结果树创建合并提交
+     * @return 新提交哈希，失败时返回 null
+     */
+    @Override
+    public String commitTree(String tree, String message, String... parents) {
+        String cmd = "git commit-tree " + tree + " -m \"" + message + "\"";
+        console.printInfo("执行: " + cmd);
+
+        List<String> args = new ArrayList<>();
+        args.add("commit-tree");
+        args.add(tree);
+        for (String parent : parents) {
+            args.add("-p");
+            args.add(parent);
+        }
+        args.add("-m");
+        args.add(message);
+
+        ProcessOutput output = runRaw(cmd, args.toArray(new String[0]));
+        if (output == null || output.getExitCode() != 0 || output.getStdoutLines().isEmpty()) {
+            console.printError(cmd + " 失败");
+            if (output != null) {
+                console.printOutput(getOutput(output));
+            }
+            return null;
+        }
+        String commit = output.getStdoutLines().get(0).trim();
+        console.printSuccess(cmd + " 完成");
+        console.printOutput(commit);
+        return commit;
+    }
+
+    /**
+     * 判断 ancestor 是否为 descendant 的祖先提交
+     */
+    @Override
+    public boolean isAncestor(String ancestor, String descendant) {
+        long start = System.nanoTime();
+        boolean result = queries.isAncestor(ancestor, descendant);
+        recordQuery("git merge-base --is-ancestor " + ancestor + " " + descendant, start, result);
+        return result;
+    }
+
+    /**
+     * 本地存在该分支且可快进时，将其指向新提交（不检出）
+     */
+    @Override
+    public void fastForwardLocalBranch(String branch, String commit) {
+        String localCommit = revParse("refs/heads/" + branch);
+        if (localCommit == null || localCommit.equals(commit) || !isAncestor(localCommit, commit)) {
+            return;
+        }
+        String cmd = "git update-ref refs/heads/" + branch + " " + MergeFlow.shortHash(commit);
+        console.printInfo("执行: " + cmd);
+
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.UPDATE_REF);
+        handler.addParameters("refs/heads/" + branch, commit, localCommit);
+        long start = System.nanoTime();
+        GitCommandResult result;
+        try {
+            result = runWithTimeout(handler, false, true);
+        } catch (TimeoutException e) {
+            operationLog.add(new GitOperationLog.TimedEntry(stepName(cmd), cmd, e.getMessage(), false,
+                    elapsedMs(start), -1, 0, 0));
+            console.printError(cmd + " " + e.getMessage() + "，已终止");
+            return;
+        }
+        record(cmd, start, result);
 
         if (!result.success()) {
+            // 仅影响本地分支指针，不影响合并结果
             console.printError(cmd + " 失败");
             console.printOutput(getOutput(result));
-            return false;
+            return;
         }
         console.printSuccess(cmd + " 完成");
-        String output = getOutput(result);
-        if (!output.isEmpty()) {
-            console.printOutput(output);
+        repository.update();
+    }
+
+    /**
+     * 执行 Git4Idea 未内置的 git 子命令（仅限本地对象库操作）
+     */
+    private ProcessOutput runRaw(String cmd, String... args) {
+        long start = System.nanoTime();
+        try {
+            ProcessOutput output = queries.runRaw(ProgressManager.getInstance().getProgressIndicator(),
+                    stepTimeoutMs(false), args);
+            if (output.isCancelled()) {
+                operationLog.add(new GitOperationLog.TimedEntry(stepName(cmd), cmd, "已取消", false, elapsedMs(start), -1, 0, 0));
+                console.printError(cmd + " 已取消");
+                throw new ProcessCanceledException();
+            }
+            if (output.isTimeout()) {
+                String message = "操作超时（" + stepTimeoutMs(false) / 1000 + " 秒）";
+                operationLog.add(new GitOperationLog.TimedEntry(stepName(cmd), cmd, message, false, elapsedMs(start), -1, 0, 0));
+                console.printError(cmd + " " + message + "，已终止");
+                return null;
+            }
+            String text = getOutput(output);
+            operationLog.add(new GitOperationLog.TimedEntry(stepName(cmd), cmd, output.getExitCode() == 0 ? null : text,
+                    output.getExitCode() == 0, elapsedMs(start), output.getExitCode(),
+                    output.getStdoutLines().size() + output.getStderrLines().size(),
+                    output.getStdout().getBytes(StandardCharsets.UTF_8).length + output.getStderr().getBytes(StandardCharsets.UTF_8).length));
+            return output;
+        } catch (ExecutionException e) {
+            operationLog.add(new GitOperationLog.TimedEntry(stepName(cmd), cmd, e.getMessage(), false, elapsedMs(start), -1, 0, 0));
+            console.printOutput(e.getMessage());
+            return null;
         }
-        return true;
+    }
+
+    /**
+     * 记录 Git4Idea 收集输出的命令
+     */
+    private void record(String cmd, long start, GitCommandResult result) {
+        long lines = 0;
+        long bytes = 0;
+        for (List<String> output : List.of(result.getOutput(), result.getErrorOutput())) {
+            for (String line : output) {
+                lines++;
+                bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        }
+        operationLog.add(new GitOperationLog.TimedEntry(stepName(cmd), cmd, result.success() ? null : getOutput(result),
+                result.success(), elapsedMs(start), result.getExitCode(), lines, bytes));
+    }
+
+    /**
+     * 记录只关心结果的引用查询
+     */
+    private void recordQuery(String cmd, long start, boolean success) {
+        operationLog.add(new GitOperationLog.TimedEntry(stepName(cmd), cmd, null, success, elapsedMs(start),
+                success ? 0 : 1, 0, 0));
+    }
+
+    /**
+     * 取 "git 子命令" 作为统计用的步骤名，如 "git fetch origin dev" → "git fetch"
+     */
+    private static String stepName(String cmd) {
+        String[] words = cmd.split("\\s+", 3);
+        return words.length >= 2 ? words[0] + " " + words[1] : cmd;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 将 "提交哈希:refs/heads/分支" 显示为 "短哈希:分支"
+     */
+    private static String displayRefspec(String refspec) {
+        int colon = refspec.indexOf(':');
+        if (colon < 0) {
+            return refspec;
+        }
+        return MergeFlow.shortHash(refspec.substring(0, colon)) + ":" + refspec.substring(colon + 1).replace("refs/heads/", "");
+    }
+
+    private String getOutput(ProcessOutput output) {
+        return GitOutputFormat.joinText(output.getStdout(), output.getStderr());
     }
 
     /**
      * 获取命令输出
      */
     private String getOutput(GitCommandResult result) {
-        StringBuilder sb = new StringBuilder();
-        if (!result.getOutput().isEmpty()) {
-            sb.append(String.join("\n", result.getOutput()));
+        return GitOutputFormat.joinLines(result.getOutput(), result.getErrorOutput());
+    }
+
+    /**
+     * 将 git 输出逐行转发到控制台，并记录到输出末尾缓冲
+     */
+    private class StreamingListener implements GitLineHandlerListener {
+        private final GitOutputTail tail;
+
+        StreamingListener(GitOutputTail tail) {
+            this.tail = tail;
         }
-        if (!result.getErrorOutput().isEmpty()) {
-            if (sb.length() > 0) {
-                sb.append("\n");
+
+        @Override
+        public void onLineAvailable(String line, Key outputType) {
+            if (outputType == ProcessOutputTypes.SYSTEM || line.isEmpty() || FetchStrategy.isProgressLine(line)) {
+                return;
             }
-            sb.append(String.join("\n", result.getErrorOutput()));
+            tail.add(line);
+            console.printOutput(line);
+        }
+
+        @Override
+        public void processTerminated(int exitCode) {
+        }
+
+        @Override
+        public void startFailed(@NotNull Throwable exception) {
+            tail.add(exception.getMessage());
         }
-        return sb.toString();
     }
 }
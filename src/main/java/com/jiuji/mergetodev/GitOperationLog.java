@@ -1,49 +1,108 @@
 package com.jiuji.mergetodev;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 /**
  * Git 操作日志收集器
+ * 只保留最近的条目；逐行转发的命令输出在内存中只保留末尾，超过阈值的完整输出在临时文件中（见 {@link GitOutputTail}）
+ * 关闭时删除仍保留条目的临时文件；不依赖 IDE，由使用方决定关闭时机
  */
 public class GitOperationLog {
 
-    private final List<LogEntry> entries = new ArrayList<>();
+    /** 最多保留的条目数，超出时丢弃最早的条目 */
+    static final int MAX_ENTRIES = 1000;
+
+    private final Deque<LogEntry> entries = new ArrayDeque<>();
     private boolean hasError = false;
+    private boolean closed;
 
     /**
      * 添加成功日志
      */
     public void addSuccess(String operation, String output) {
-        entries.add(new LogEntry(operation, output, true));
+        add(new LogEntry(operation, output, true));
     }
 
     /**
      * 添加失败日志
      */
     public void addError(String operation, String output) {
-        entries.add(new LogEntry(operation, output, false));
-        hasError = true;
+        add(new LogEntry(operation, output, false));
+    }
+
+    /**
+     * 添加带耗时的日志
+     */
+    public void add(TimedEntry entry) {
+        add((LogEntry) entry);
+    }
+
+    private synchronized void add(LogEntry entry) {
+        if (closed) {
+            if (entry.spilled != null) {
+                entry.spilled.delete();
+            }
+            return;
+        }
+        if (entries.size() == MAX_ENTRIES) {
+            LogEntry evicted = entries.removeFirst();
+            if (evicted.spilled != null) {
+                evicted.spilled.delete();
+            }
+        }
+        entries.addLast(entry);
+        if (!entry.success) {
+            hasError = true;
+        }
+    }
+
+    /**
+     * 删除所有条目的临时文件，之后添加的条目不再保留临时文件
+     */
+    public synchronized void close() {
+        closed = true;
+        for (LogEntry entry : entries) {
+            if (entry.spilled != null) {
+                entry.spilled.delete();
+            }
+        }
+        entries.clear();
     }
 
     /**
-     * 是否有错误
+     * 是否有错误（包括已丢弃的条目）
      */
-    public boolean hasError() {
+    public synchronized boolean hasError() {
         return hasError;
     }
 
     /**
-     * 获取所有日志条目
+     * 获取保留的日志条目（快照）
      */
-    public List<LogEntry> getEntries() {
-        return entries;
+    public synchronized List<LogEntry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * 获取带耗时的日志条目
+     */
+    public synchronized List<TimedEntry> getTimedEntries() {
+        List<TimedEntry> timed = new ArrayList<>();
+        for (LogEntry entry : entries) {
+            if (entry instanceof TimedEntry) {
+                timed.add((TimedEntry) entry);
+            }
+        }
+        return timed;
     }
 
     /**
      * 转换为 HTML 格式用于显示
      */
-    public String toHtml() {
+    public synchronized String toHtml() {
         StringBuilder sb = new StringBuilder();
         sb.append("<html><body style='font-family: monospace; font-size: 12px;'>");
         
@@ -52,17 +111,20 @@ public class GitOperationLog {
             String icon = entry.success ? "✓" : "✗";
             
             sb.append("<div style='margin-bottom: 10px;'>");
-            sb.append("<b style='color: ").append(color).append(";'>").append(icon).append(" ").append(entry.operation).append("</b><br/>");
+            sb.append("<b style='color: ").append(color).append(";'>").append(icon).append(" ");
+            GitOutputFormat.escapeHtml(entry.operation, sb);
+            sb.append("</b><br/>");
             
-            if (entry.output != null && !entry.output.trim().isEmpty()) {
-                String escapedOutput = entry.output
-                        .replace("&", "&amp;")
-                        .replace("<", "&lt;")
-                        .replace(">", "&gt;")
-                        .replace("\n", "<br/>");
-                sb.append("<pre style='background: #f5f5f5; padding: 5px; margin: 5px 0; white-space: pre-wrap;'>")
-                  .append(escapedOutput)
-                  .append("</pre>");
+            if (entry.output != null && !entry.output.isBlank()) {
+                // 直接转义写入，不生成中间字符串
+                sb.append("<pre style='background: #f5f5f5; padding: 5px; margin: 5px 0; white-space: pre-wrap;'>");
+                GitOutputFormat.escapeHtml(entry.output, sb);
+                sb.append("</pre>");
+            }
+            if (entry.spilled != null) {
+                sb.append("<i>完整输出见 ");
+                GitOutputFormat.escapeHtml(entry.spilled.getFile().toString(), sb);
+                sb.append("</i>");
             }
             sb.append("</div>");
         }
@@ -74,14 +136,17 @@ public class GitOperationLog {
     /**
      * 转换为纯文本格式
      */
-    public String toPlainText() {
+    public synchronized String toPlainText() {
         StringBuilder sb = new StringBuilder();
         for (LogEntry entry : entries) {
             String icon = entry.success ? "[OK]" : "[FAIL]";
             sb.append(icon).append(" ").append(entry.operation).append("\n");
-            if (entry.output != null && !entry.output.trim().isEmpty()) {
+            if (entry.output != null && !entry.output.isBlank()) {
                 sb.append(entry.output).append("\n");
             }
+            if (entry.spilled != null) {
+                sb.append("（完整输出见 ").append(entry.spilled.getFile()).append("）\n");
+            }
             sb.append("\n");
         }
         return sb.toString();
@@ -92,13 +157,48 @@ public class GitOperationLog {
      */
     public static class LogEntry {
         public final String operation;
+        /** 输出内容；逐行转发的命令只有末尾部分 */
         public final String output;
         public final boolean success;
+        /** 完整输出的临时文件，输出未超过阈值时为 null */
+        public final SpilledOutput spilled;
 
         public LogEntry(String operation, String output, boolean success) {
+            this(operation, output, success, null);
+        }
+
+        public LogEntry(String operation, String output, boolean success, SpilledOutput spilled) {
             this.operation = operation;
             this.output = output;
             this.success = success;
+            this.spilled = spilled;
+        }
+    }
+
+    /**
+     * 带耗时与输出统计的日志条目
+     */
+    public static class TimedEntry extends LogEntry {
+        /** 步骤名，如 git fetch，用于跨次统计 */
+        public final String step;
+        public final long durationMs;
+        public final int exitCode;
+        public final long outputLines;
+        public final long outputBytes;
+
+        public TimedEntry(String step, String operation, String output, boolean success,
+                          long durationMs, int exitCode, long outputLines, long outputBytes) {
+            this(step, operation, output, success, durationMs, exitCode, outputLines, outputBytes, null);
+        }
+
+        public TimedEntry(String step, String operation, String output, boolean success,
+                          long durationMs, int exitCode, long outputLines, long outputBytes, SpilledOutput spilled) {
+            super(operation, output, success, spilled);
+            this.step = step;
+            this.durationMs = durationMs;
+            this.exitCode = exitCode;
+            this.outputLines = outputLines;
+            this.outputBytes = outputBytes;
         }
     }
 }
@@ -0,0 +1,82 @@
+package com.jiuji.mergetodev;
+
+import java.util.List;
+
+/**
+ * git 输出的文本格式化（不依赖 IDE，供日志展示与基准测试共用）
+ */
+public final class GitOutputFormat {
+
+    private GitOutputFormat() {
+    }
+
+    /**
+     * 合并标准输出与错误输出的行，中间以换行分隔
+     */
+    public static String joinLines(List<String> output, List<String> errorOutput) {
+        StringBuilder sb = new StringBuilder();
+        if (!output.isEmpty()) {
+            sb.append(String.join("\n", output));
+        }
+        if (!errorOutput.isEmpty()) {
+            if (sb.length() > 0) {
+                sb.append("\n");
+            }
+            sb.append(String.join("\n", errorOutput));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 合并标准输出与错误输出文本（各自去除首尾空白）
+     */
+    public static String joinText(String stdout, String stderr) {
+        StringBuilder sb = new StringBuilder(stdout.trim());
+        if (!stderr.trim().isEmpty()) {
+            if (sb.length() > 0) {
+                sb.append("\n");
+            }
+            sb.append(stderr.trim());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 每行加上缩进，用于控制台中的命令输出
+     */
+    public static String indent(String text, String indent) {
+        return indent + text.replace("\n", "\n" + indent);
+    }
+
+    /**
+     * 转义为可放入 HTML 的文本，换行转为 &lt;br/&gt;
+     */
+    public static String escapeHtml(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        escapeHtml(text, sb);
+        return sb.toString();
+    }
+
+    /**
+     * 单次遍历转义并追加到 sb，无需转义的连续片段整段复制
+     */
+    public static void escapeHtml(CharSequence text, StringBuilder sb) {
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            String replacement;
+            switch (text.charAt(i)) {
+                case '&' -> replacement = "&amp;";
+                case '<' -> replacement = "&lt;";
+                case '>' -> replacement = "&gt;";
+                case '\n' -> replacement = "<br/>";
+                default -> {
+                    continue;
+                }
+            }
+            sb.append(text, start, i).append(replacement);
+            start = i + 1;
+        }
+        sb.append(text, start, length);
+    }
+}
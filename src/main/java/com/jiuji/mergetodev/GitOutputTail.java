@@ -0,0 +1,138 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * git 输出末尾缓冲：输出实时转发到控制台，这里只保留最近若干行用于失败判断
+ * 输出超过 SPILL_THRESHOLD_CHARS 时，完整输出逐行写入临时文件（{@link SpilledOutput}）
+ */
+public class GitOutputTail {
+
+    private static final Logger LOG = Logger.getInstance(GitOutputTail.class);
+    private static final int DEFAULT_MAX_LINES = 200;
+    /** 输出超过该字符数时写入临时文件 */
+    static final int SPILL_THRESHOLD_CHARS = 64 * 1024;
+
+    private final Deque<String> lines = new ArrayDeque<>();
+    private final int maxLines;
+    private long totalLines;
+    private long totalBytes;
+    /** 未超过阈值前的完整输出，超过后写入临时文件并清空 */
+    private StringBuilder head = new StringBuilder();
+    private SpilledOutput.Writer spill;
+
+    public GitOutputTail() {
+        this(DEFAULT_MAX_LINES);
+    }
+
+    public GitOutputTail(int maxLines) {
+        this.maxLines = maxLines;
+    }
+
+    /**
+     * 追加一行，超出容量时丢弃最早的行
+     */
+    public synchronized void add(String line) {
+        if (lines.size() == maxLines) {
+            lines.removeFirst();
+        }
+        lines.addLast(line);
+        totalLines++;
+        totalBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        spill(line);
+    }
+
+    /**
+     * 完整输出：阈值内保留在内存，超出后写入临时文件；写入失败时只保留末尾
+     */
+    private void spill(String line) {
+        try {
+            if (spill != null) {
+                spill.write(line + "\n");
+                return;
+            }
+            if (head == null) {
+                return;
+            }
+            head.append(line).append('\n');
+            if (head.length() > SPILL_THRESHOLD_CHARS) {
+                spill = SpilledOutput.create();
+                spill.write(head.toString());
+                head = null;
+            }
+        } catch (IOException e) {
+            LOG.info("无法写入输出临时文件", e);
+            if (spill != null) {
+                spill.abort();
+                spill = null;
+            }
+            head = null;
+        }
+    }
+
+    /**
+     * 命令结束后完成临时文件写入
+     * @return 完整输出的临时文件，输出未超过阈值或写入失败时返回 null
+     */
+    public synchronized SpilledOutput finishSpill() {
+        head = null;
+        if (spill == null) {
+            return null;
+        }
+        SpilledOutput.Writer writer = spill;
+        spill = null;
+        try {
+            return writer.finish();
+        } catch (IOException e) {
+            LOG.info("无法写入输出临时文件", e);
+            writer.abort();
+            return null;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * 保留的行中是否包含指定文本
+     */
+    public synchronized boolean contains(String text) {
+        for (String line : lines) {
+            if (line.contains(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized List<String> getLines() {
+        return new ArrayList<>(lines);
+    }
+
+    /**
+     * 命令输出的总行数（包括已丢弃的行）
+     */
+    public synchronized long getTotalLines() {
+        return totalLines;
+    }
+
+    /**
+     * 命令输出的总字节数（UTF-8，含换行）
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,192 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import git4idea.commands.Git;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+import git4idea.config.GitExecutableManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 只读的引用与提交关系查询（不输出日志），供合并流程与后台状态服务共用
+ * 引用解析、祖先判断与领先/落后统计优先由 {@link GitBatchQueryService} 的常驻进程回答，失败时再单独执行 git 命令
+ * 单独执行的 git 命令受本地步骤超时限制，超时视为查询失败
+ */
+public class GitRefQueries {
+
+    private static final Logger LOG = Logger.getInstance(GitRefQueries.class);
+
+    private final Project project;
+    private final VirtualFile root;
+    private final Git git;
+
+    public GitRefQueries(Project project, VirtualFile root) {
+        this.project = project;
+        this.root = root;
+        this.git = Git.getInstance();
+    }
+
+    /**
+     * 解析引用对应的提交哈希
+     * @return 提交哈希，引用不存在时返回 null
+     */
+    public String revParse(String ref) {
+        try {
+            return batch().revParse(root, ref);
+        } catch (IOException e) {
+            LOG.debug("git cat-file --batch 查询失败，改用 git rev-parse", e);
+        }
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.REV_PARSE);
+        handler.setSilent(true);
+        handler.addParameters("--verify", "--quiet", ref + "^{commit}");
+        GitCommandResult result = runLocal(handler);
+        if (result == null || !result.success() || result.getOutput().isEmpty()) {
+            return null;
+        }
+        return result.getOutput().get(0).trim();
+    }
+
+    /**
+     * 直接由 git status 判断工作区是否有未提交的更改（不经过 ChangeListManager 的异步缓存，提交后立即准确）
+     * @return 是否有更改；查询失败时返回 true，由提交步骤报告实际结果
+     */
+    public boolean hasWorkingTreeChanges() {
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.STATUS);
+        handler.setSilent(true);
+        handler.addParameters("--porcelain");
+        GitCommandResult result = runLocal(handler);
+        return result == null || !result.success() || !result.getOutput().isEmpty();
+    }
+
+    /**
+     * 判断 ancestor 是否为 descendant 的祖先提交
+     */
+    public boolean isAncestor(String ancestor, String descendant) {
+        try {
+            return batch().isAncestor(root, ancestor, descendant);
+        } catch (IOException e) {
+            LOG.debug("git cat-file --batch 查询失败，改用 git merge-base", e);
+        }
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.MERGE_BASE);
+        handler.setSilent(true);
+        handler.addParameters("--is-ancestor", ancestor, descendant);
+        GitCommandResult result = runLocal(handler);
+        return result != null && result.success();
+    }
+
+    /**
+     * 统计 head 相对 base 的领先/落后提交数
+     * git rev-list --left-right --count base...head
+     * @return 统计结果，任一引用不存在时返回 null
+     */
+    public AheadBehind aheadBehind(String base, String head) {
+        try {
+            return batch().aheadBehind(root, base, head);
+        } catch (IOException e) {
+            LOG.debug("git cat-file --batch 查询失败，改用 git rev-list", e);
+        }
+        GitLineHandler handler = new GitLineHandler(project, root, GitCommand.REV_LIST);
+        handler.setSilent(true);
+        handler.addParameters("--left-right", "--count", base + "..." + head);
+        GitCommandResult result = runLocal(handler);
+        if (result == null || !result.success() || result.getOutput().isEmpty()) {
+            return null;
+        }
+
+        String[] counts = result.getOutput().get(0).trim().split("\\s+");
+        try {
+            return new AheadBehind(Integer.parseInt(counts[1]), Integer.parseInt(counts[0]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 在对象库中试合并两个提交，不触碰工作区和索引
+     * @return 合并结果；进程无法启动时视为不支持
+     */
+    public TreeMergeResult mergeTree(String ours, String theirs) {
+        try {
+            return parseMergeTree(runRaw(ProgressManager.getInstance().getProgressIndicator(),
+                    GitOperationHelper.stepTimeoutMs(false), TreeMergeResult.args(ours, theirs)));
+        } catch (ExecutionException e) {
+            return TreeMergeResult.unsupported();
+        }
+    }
+
+    /**
+     * 解析 merge-tree 的进程输出，超时或取消视为不支持
+     */
+    static TreeMergeResult parseMergeTree(ProcessOutput output) {
+        if (output == null || output.isTimeout() || output.isCancelled()) {
+            return TreeMergeResult.unsupported();
+        }
+        return TreeMergeResult.parse(output.getExitCode(), output.getStdoutLines());
+    }
+
+    private GitBatchQueryService batch() {
+        return GitBatchQueryService.getInstance(project);
+    }
+
+    /**
+     * 以本地步骤超时执行查询命令
+     * @return 结果，超时返回 null
+     */
+    private GitCommandResult runLocal(GitLineHandler handler) {
+        try {
+            return runWithTimeout(handler, GitOperationHelper.stepTimeoutMs(false), true);
+        } catch (TimeoutException e) {
+            LOG.info("git " + handler.printableCommandLine() + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 在当前进度下限时执行；没有当前进度时（如后台线程直接调用）使用新的空进度
+     * 超时后取消子进度，Git4Idea 随即终止 git 进程
+     * @param timeoutMs     0 表示不限时
+     * @param collectOutput 是否在结果中保留输出（逐行转发到控制台的命令不保留）
+     */
+    GitCommandResult runWithTimeout(GitLineHandler handler, long timeoutMs, boolean collectOutput) throws TimeoutException {
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        if (indicator == null) {
+            indicator = new EmptyProgressIndicator();
+        }
+        Supplier<GitCommandResult> command = collectOutput
+                ? () -> git.runCommand(handler)
+                : () -> git.runCommandWithoutCollectingOutput(handler);
+        if (timeoutMs <= 0) {
+            return ProgressManager.getInstance().runProcess(command::get, indicator);
+        }
+        return TimeLimitedProgress.compute(indicator, timeoutMs, command);
+    }
+
+    /**
+     * 执行 Git4Idea 未内置的 git 子命令，进度取消或超时时终止进程
+     * @param indicator 为 null 时不检查取消
+     * @param timeoutMs 0 表示不限时
+     */
+    ProcessOutput runRaw(ProgressIndicator indicator, long timeoutMs, String... args) throws ExecutionException {
+        GeneralCommandLine commandLine = new GeneralCommandLine(GitExecutableManager.getInstance().getPathToGit(project))
+                .withParameters(args)
+                .withWorkDirectory(root.getPath())
+                .withCharset(StandardCharsets.UTF_8);
+        CapturingProcessHandler handler = new CapturingProcessHandler(commandLine);
+        int timeout = timeoutMs <= 0 ? -1 : (int) Math.min(Integer.MAX_VALUE, timeoutMs);
+        return indicator == null ? handler.runProcess(timeout) : handler.runProcessWithProgressIndicator(indicator, timeout);
+    }
+}
@@ -0,0 +1,564 @@
+package com.jiuji.mergetodev;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 合并流程本身（不依赖 IDE）：预检查，以及提交 → 推送当前分支 → 一次获取所有目标分支 → 逐个合并（可快进时跳过）→ 一次推送所有目标分支
+ * 各步骤记入 {@link MergeJournal}，失败后重试时跳过输入未变化的已完成步骤
+ * 插件经 {@link MergePipeline} 执行，基准测试直接在命令行 git 上执行同一流程
+ */
+public class MergeFlow {
+
+    /** 推送竞争重试的基础退避时间 */
+    private static final long RETRY_BASE_DELAY_MS = 1_000;
+    private static final long RETRY_MAX_DELAY_MS = 8_000;
+    /** 续跑时上次 fetch 在该时间内完成则不再 fetch；目标分支若已被更新，推送被拒后会重新获取 */
+    private static final long FETCH_REUSE_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final MergeGit git;
+    private final Output output;
+    private final Journals journals;
+    private final String currentBranch;
+    /** 源分支 → 该分支要合并到的目标分支；合并队列合批时包含多个源分支 */
+    private final Map<String, List<String>> sources;
+    /** 所有源分支的目标分支（去重，保持顺序） */
+    private final List<String> targetBranches;
+    private final String commitMessage;
+    /** 需要推送到远程的源分支 */
+    private final Set<String> pushBranches;
+    private final Options options;
+    private int pushAttempts;
+    private MergeJournal journal;
+
+    /**
+     * @param commitMessage 提交信息，null 表示无需提交
+     */
+    public MergeFlow(MergeGit git, Output output, Journals journals, String currentBranch,
+                     Map<String, List<String>> sources, String commitMessage, Set<String> pushBranches,
+                     Options options) {
+        this.git = git;
+        this.output = output;
+        this.journals = journals;
+        this.currentBranch = currentBranch;
+        this.sources = sources;
+        this.targetBranches = sources.values().stream()
+                .flatMap(List::stream)
+                .distinct()
+                .collect(Collectors.toList());
+        this.commitMessage = commitMessage;
+        this.pushBranches = pushBranches;
+        this.options = options;
+    }
+
+    /**
+     * 单个仓库的预检查：检测未提交更改，fetch 当前分支（批量模式下同时获取所有目标分支，合并阶段不再 fetch），统计领先提交数
+     * @param checkCanceled 每一步之前调用，取消时抛出的异常原样传出
+     */
+    public static Preflight preflight(MergeGit git, String currentBranch, List<String> targetBranches,
+                                      boolean batched, Runnable checkCanceled) {
+        boolean hasUncommittedChanges = git.hasUncommittedChanges();
+        checkCanceled.run();
+
+        List<String> branches = new ArrayList<>();
+        branches.add(currentBranch);
+        if (batched) {
+            branches.addAll(targetBranches);
+        }
+        // 当前分支尚未推送过时整体 fetch 会失败，此时由合并阶段单独获取目标分支；
+        // 超过网络步骤超时时沿用本地的远程跟踪分支，领先数只会偏大，不影响判断
+        boolean fetched = git.fetchSilent(branches.toArray(new String[0]));
+        checkCanceled.run();
+
+        return new Preflight(hasUncommittedChanges, git.getAheadCount(currentBranch), batched && fetched);
+    }
+
+    /**
+     * 执行合并流程；取消时 progress 抛出的异常原样传出，由调用方执行 {@link #restoreAfterCancel()}
+     * @return 是否全部成功
+     */
+    public boolean run(Progress progress) {
+        if (sources.size() == 1) {
+            output.printInfo("当前分支: " + currentBranch);
+        } else {
+            output.printInfo("源分支: " + String.join(", ", sources.keySet()));
+        }
+        output.printInfo("目标分支: " + String.join(", ", targetBranches));
+        output.printInfo("");
+
+        openJournal();
+        // 上次合并中断在目标分支上时先切回原分支
+        String stranded = journal.strandedTarget();
+        if (stranded != null && stranded.equals(git.currentBranch())) {
+            step(progress, "正在切回原分支...");
+            output.printInfo("上次合并停留在 " + stranded + " 分支，先切回 " + currentBranch);
+            if (git.hasUncommittedChanges()) {
+                // 可能是正在解决的冲突，不能带到原分支
+                output.printError(stranded + " 分支上有未提交的更改，请先完成或放弃该分支上的合并");
+                return false;
+            }
+            if (!finish(MergeJournal.CHECKOUT_PREFIX + stranded, null, git.checkout(currentBranch), null)) {
+                return false;
+            }
+            output.printInfo("");
+        }
+
+        // 如果有未提交更改，先提交
+        if (commitMessage != null) {
+            step(progress, "正在提交更改...");
+            started("commit", null);
+            if (!finish("commit", null, git.commitAll(commitMessage), git.revParse("HEAD"))) {
+                return false;
+            }
+            output.printInfo("");
+        }
+
+        // 推送到当前分支的远程（无论是否有新提交都推送）；批量模式下与目标分支一起原子推送
+        if (!pushBranches.isEmpty() && !options.batched) {
+            String inputs = branchHashes(pushBranches);
+            if (journal.isDone("push-source", inputs) && remoteMatches(pushBranches)) {
+                output.printInfo("上次已推送 " + String.join(", ", pushBranches) + "，跳过");
+            } else {
+                step(progress, "正在推送到远程 " + String.join(", ", pushBranches) + " 分支...");
+                started("push-source", inputs);
+                if (!finish("push-source", inputs, git.push(pushBranches.toArray(new String[0])), null)) {
+                    return false;
+                }
+            }
+            output.printInfo("");
+        }
+
+        // Step 1: 一次 fetch 所有目标分支（预检查已获取时跳过）
+        String fetchInputs = String.join(",", targetBranches);
+        MergeJournal.Step lastFetch = journal.find("fetch");
+        if (options.targetsFetched) {
+            output.printInfo("目标分支已在预检查阶段获取，跳过 fetch");
+        } else if (journal.isDone("fetch", fetchInputs) && System.currentTimeMillis() - lastFetch.time < FETCH_REUSE_MS) {
+            output.printInfo("上次已获取目标分支，跳过 fetch");
+        } else {
+            step(progress, "正在获取远程分支...");
+            started("fetch", fetchInputs);
+            if (!finish("fetch", fetchInputs, git.fetch(targetBranches.toArray(new String[0])), null)) {
+                return false;
+            }
+        }
+        output.printInfo("");
+
+        // Step 2: 依次合并到各目标分支，推送统一放到最后
+        Map<String, String> treeMerged = new LinkedHashMap<>();
+        List<String> checkoutMerged = new ArrayList<>();
+        if (!mergeTargets(progress, targetBranches, treeMerged, checkoutMerged)) {
+            return false;
+        }
+
+        // Step 3: 一次推送所有目标分支；批量模式下连同当前分支一起原子推送，全部成功或全部失败
+        // 目标分支在合并后被他人抢先推送时，只重新获取并合并被拒绝的分支，退避后重试
+        for (pushAttempts = 1; ; pushAttempts++) {
+            List<String> refspecs = new ArrayList<>();
+            if (options.batched) {
+                refspecs.addAll(pushBranches);
+            }
+            treeMerged.forEach((targetBranch, commit) -> refspecs.add(commit + ":refs/heads/" + targetBranch));
+            refspecs.addAll(checkoutMerged);
+            if (refspecs.isEmpty()) {
+                output.printInfo("所有目标分支都已包含源分支，无需推送");
+                break;
+            }
+
+            step(progress, pushAttempts == 1 ? "正在推送到远程..." : "正在重试推送（第 " + pushAttempts + " 次）...");
+            String pushInputs = String.join(" ", refspecs);
+            started("push", pushInputs);
+            PushResult result = git.pushForResult(options.batched, refspecs.toArray(new String[0]));
+            finish("push", pushInputs, result.success, null);
+            if (result.success) {
+                break;
+            }
+            if (!result.isRetryable() || !targetBranches.containsAll(result.staleBranches)
+                    || pushAttempts > options.pushRetryLimit) {
+                return false;
+            }
+
+            List<String> stale = new ArrayList<>(result.staleBranches);
+            output.printInfo("");
+            output.printInfo("远程 " + String.join(", ", stale) + " 已被他人更新，重新合并后重试（"
+                    + pushAttempts + "/" + options.pushRetryLimit + "）");
+            backoff(progress, pushAttempts);
+            step(progress, "正在重新获取远程分支...");
+            started("fetch", fetchInputs);
+            if (!finish("fetch", fetchInputs, git.fetch(stale.toArray(new String[0])), null)) {
+                return false;
+            }
+            stale.forEach(treeMerged::remove);
+            checkoutMerged.removeAll(stale);
+            output.printInfo("");
+            if (!mergeTargets(progress, stale, treeMerged, checkoutMerged)) {
+                return false;
+            }
+        }
+        if (pushAttempts > 1) {
+            output.printSuccess("推送成功，共尝试 " + pushAttempts + " 次");
+        }
+        treeMerged.forEach(git::fastForwardLocalBranch);
+        journals.clear();
+        output.printInfo("");
+        return true;
+    }
+
+    /**
+     * 取消后恢复工作区：放弃进行中的合并，切回原分支（恢复操作本身仍受单步超时限制）
+     */
+    public void restoreAfterCancel() {
+        git.refresh();
+        if (git.isMerging()) {
+            output.printInfo("");
+            output.printInfo("正在放弃未完成的合并...");
+            git.abortMerge();
+        }
+        String target = git.currentBranch();
+        if (!currentBranch.equals(target)) {
+            output.printInfo("正在切回原分支 " + currentBranch + "...");
+            if (git.checkout(currentBranch) && journal != null && target != null) {
+                finish(MergeJournal.CHECKOUT_PREFIX + target, null, true, null);
+            }
+        }
+    }
+
+    /**
+     * 推送的尝试次数（1 表示一次成功）
+     */
+    public int getPushAttempts() {
+        return pushAttempts;
+    }
+
+    /**
+     * 读取上次未完成的日志；源分支与目标分支一致时续跑，否则重新开始
+     */
+    private void openJournal() {
+        String key = sources.entrySet().stream()
+                .map(source -> source.getKey() + "→" + String.join(",", source.getValue()))
+                .collect(Collectors.joining(";"));
+        MergeJournal previous = journals.load();
+        if (previous != null && currentBranch.equals(previous.branch) && key.equals(previous.sources)) {
+            MergeJournal.Step incomplete = previous.firstIncomplete();
+            if (incomplete != null) {
+                output.printInfo("继续上次未完成的合并（中断于 " + incomplete.name + "），跳过输入未变化的已完成步骤");
+                output.printInfo("");
+            }
+            journal = previous;
+        } else {
+            journal = new MergeJournal(currentBranch, key);
+        }
+    }
+
+    private void started(String name, String inputs) {
+        journal.record(name, inputs, MergeJournal.Status.STARTED, null);
+        journals.save(journal);
+    }
+
+    /**
+     * 记录步骤结果并持久化
+     * @return success
+     */
+    private boolean finish(String name, String inputs, boolean success, String result) {
+        journal.record(name, inputs, success ? MergeJournal.Status.DONE : MergeJournal.Status.FAILED, result);
+        journals.save(journal);
+        return success;
+    }
+
+    /**
+     * "分支=提交哈希" 列表，作为步骤输入
+     */
+    private String branchHashes(Set<String> branches) {
+        return branches.stream()
+                .map(branch -> branch + "=" + git.revParse(branch))
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * 远程跟踪分支是否都已指向本地分支的提交
+     */
+    private boolean remoteMatches(Set<String> branches) {
+        for (String branch : branches) {
+            String local = git.revParse(branch);
+            if (local == null || !local.equals(git.revParse("origin/" + branch))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 依次把各源分支合并到给定目标分支：免检出合并的结果记入 treeMerged，常规流程合并的分支记入 checkoutMerged
+     * 同一目标分支的多个源分支在上一次合并结果之上继续合并；常规流程合并后切回原分支
+     */
+    private boolean mergeTargets(Progress progress, List<String> targets,
+                                 Map<String, String> treeMerged, List<String> checkoutMerged) {
+        boolean checkedOut = false;
+        for (String targetBranch : targets) {
+            boolean onTarget = false;
+            for (Map.Entry<String, List<String>> source : sources.entrySet()) {
+                if (!source.getValue().contains(targetBranch)) {
+                    continue;
+                }
+                String sourceBranch = source.getKey();
+                String stepName = "merge:" + sourceBranch + "→" + targetBranch;
+
+                if (!onTarget) {
+                    // 源分支与合并起点都未变化时复用上次在对象库中完成的合并
+                    String base = treeMerged.get(targetBranch);
+                    String inputs = git.revParse(sourceBranch) + " "
+                            + (base != null ? base : git.revParse("origin/" + targetBranch));
+                    MergeJournal.Step previous = journal.find(stepName);
+                    if (journal.isDone(stepName, inputs) && previous.output != null && git.revParse(previous.output) != null) {
+                        output.printInfo("复用上次 " + sourceBranch + " 到 " + targetBranch + " 的合并结果 "
+                                + shortHash(previous.output));
+                        treeMerged.put(targetBranch, previous.output);
+                        continue;
+                    }
+
+                    // 目标分支已包含源分支时跳过，不产生空的合并提交，也不推送该目标分支
+                    String targetTip = base != null ? base : "origin/" + targetBranch;
+                    if (git.isAncestor(sourceBranch, targetTip)) {
+                        output.printInfo(targetBranch + " 已包含 " + sourceBranch + "，跳过");
+                        output.printInfo("");
+                        finish(stepName, inputs, true, null);
+                        continue;
+                    }
+
+                    // 目标分支是源分支的祖先时直接快进，不合并也不碰工作区
+                    String fastForward = fastForwardCommit(progress, sourceBranch, targetBranch, base);
+                    if (fastForward != null) {
+                        finish(stepName, inputs, true, fastForward);
+                        treeMerged.put(targetBranch, fastForward);
+                        continue;
+                    }
+
+                    // 免检出合并：冲突或 git 版本不支持时回退到常规流程
+                    String mergeCommit = options.checkoutFree
+                            ? mergeWithoutCheckout(progress, sourceBranch, targetBranch, base) : null;
+                    if (mergeCommit != null) {
+                        finish(stepName, inputs, true, mergeCommit);
+                        treeMerged.put(targetBranch, mergeCommit);
+                        continue;
+                    }
+                    if (options.checkoutFree) {
+                        output.printInfo("回退到常规合并流程...");
+                        output.printInfo("");
+                    }
+
+                    // 之前在对象库中完成的合并提交一并带入工作区；切回原分支前一直记为未完成
+                    started(MergeJournal.CHECKOUT_PREFIX + targetBranch, null);
+                    if (!checkoutTarget(progress, targetBranch, treeMerged.remove(targetBranch))) {
+                        return false;
+                    }
+                    onTarget = true;
+                    checkedOut = true;
+                    checkoutMerged.add(targetBranch);
+                }
+                step(progress, "正在合并 " + sourceBranch + " 到 " + targetBranch + " 分支...");
+                started(stepName, null);
+                if (!finish(stepName, null, git.merge(sourceBranch), null)) {
+                    return false;
+                }
+                output.printInfo("");
+            }
+        }
+
+        // checkout back
+        if (checkedOut) {
+            step(progress, "正在切回原分支...");
+            if (git.checkout(currentBranch)) {
+                for (String target : checkoutMerged) {
+                    finish(MergeJournal.CHECKOUT_PREFIX + target, null, true, null);
+                }
+            }
+            output.printInfo("");
+        }
+        return true;
+    }
+
+    /**
+     * 指数退避并加入随机抖动，避免多人同时重试再次撞车
+     */
+    private void backoff(Progress progress, int attempt) {
+        long base = Math.min(RETRY_BASE_DELAY_MS << (attempt - 1), RETRY_MAX_DELAY_MS);
+        long delay = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+        step(progress, "等待 " + delay + " ms 后重试...");
+        long deadline = System.currentTimeMillis() + delay;
+        while (System.currentTimeMillis() < deadline) {
+            progress.checkCanceled();
+            try {
+                Thread.sleep(Math.min(100, Math.max(1, deadline - System.currentTimeMillis())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 常规流程：切换到目标分支并同步远程（不合并源分支、不推送、不切回）
+     * @param pendingCommit 已在对象库中完成、尚未推送的合并提交，null 表示直接同步远程跟踪分支
+     */
+    private boolean checkoutTarget(Progress progress, String targetBranch, String pendingCommit) {
+        step(progress, "正在切换到 " + targetBranch + " 分支...");
+        if (!git.checkout(targetBranch)) {
+            return false;
+        }
+        output.printInfo("");
+
+        // 已统一 fetch，直接合并远程跟踪分支，等价于 pull 但不再访问网络
+        step(progress, "正在同步远程 " + targetBranch + " 分支...");
+        if (!git.merge(pendingCommit != null ? pendingCommit : "origin/" + targetBranch)) {
+            if (git.checkout(currentBranch)) {
+                finish(MergeJournal.CHECKOUT_PREFIX + targetBranch, null, true, null);
+            }
+            return false;
+        }
+        output.printInfo("");
+        return true;
+    }
+
+    /**
+     * 检查目标分支能否直接快进到源分支（git merge-base --is-ancestor）
+     * @param baseCommit 目标分支的合并起点，null 表示 origin/目标分支
+     * @return 源分支提交哈希，不能快进时返回 null
+     */
+    private String fastForwardCommit(Progress progress, String sourceBranch, String targetBranch, String baseCommit) {
+        step(progress, "正在检查 " + targetBranch + " 能否快进...");
+        String base = baseCommit != null ? baseCommit : "origin/" + targetBranch;
+        if (!git.isAncestor(base, sourceBranch)) {
+            return null;
+        }
+        String sourceCommit = git.revParse(sourceBranch);
+        if (sourceCommit != null) {
+            output.printSuccess(targetBranch + " 可快进到 " + sourceBranch + "，跳过合并直接推送");
+            output.printInfo("");
+        }
+        return sourceCommit;
+    }
+
+    /**
+     * 在对象库中完成合并，全程不切换工作区分支
+     * @param baseCommit 目标分支的合并起点，null 表示 origin/目标分支
+     * @return 合并提交哈希，null 表示需要回退到常规流程
+     */
+    private String mergeWithoutCheckout(Progress progress, String sourceBranch, String targetBranch, String baseCommit) {
+        step(progress, "正在对象库中合并 " + sourceBranch + " 到 " + targetBranch + "...");
+        String targetCommit = baseCommit != null ? baseCommit : git.revParse("origin/" + targetBranch);
+        String sourceCommit = git.revParse(sourceBranch);
+        if (targetCommit == null || sourceCommit == null) {
+            return null;
+        }
+
+        TreeMergeResult treeMerge = git.mergeTree(targetCommit, sourceCommit);
+        if (treeMerge.status != TreeMergeResult.Status.CLEAN) {
+            return null;
+        }
+
+        String mergeCommit = git.commitTree(treeMerge.tree,
+                "Merge branch '" + sourceBranch + "' into " + targetBranch, targetCommit, sourceCommit);
+        output.printInfo("");
+        return mergeCommit;
+    }
+
+    private static void step(Progress progress, String text) {
+        progress.checkCanceled();
+        progress.setText(text);
+    }
+
+    /**
+     * 完整提交哈希显示为前 8 位，其他引用原样返回
+     */
+    static String shortHash(String commit) {
+        return commit.length() == 40 ? commit.substring(0, 8) : commit;
+    }
+
+    /**
+     * 流程选项
+     */
+    public static final class Options {
+        /** 免检出合并（merge-tree / commit-tree） */
+        final boolean checkoutFree;
+        /** 合并网络请求：预检查一次获取所有目标分支，最后一次原子推送 */
+        final boolean batched;
+        /** 预检查阶段是否已 fetch 所有目标分支 */
+        final boolean targetsFetched;
+        /** 推送竞争的最多重试次数 */
+        final int pushRetryLimit;
+
+        public Options(boolean checkoutFree, boolean batched, boolean targetsFetched, int pushRetryLimit) {
+            this.checkoutFree = checkoutFree;
+            this.batched = batched;
+            this.targetsFetched = targetsFetched;
+            this.pushRetryLimit = pushRetryLimit;
+        }
+    }
+
+    /**
+     * 预检查结果
+     */
+    public static final class Preflight {
+        /** 缓存显示已同步且无未提交更改、跳过预检查时使用 */
+        public static final Preflight IN_SYNC = new Preflight(false, 0, false);
+
+        public final boolean hasUncommittedChanges;
+        /** 领先远程的提交数，-1 表示远程分支不存在 */
+        public final int aheadCount;
+        /** 是否已连同当前分支获取所有目标分支，合并阶段不再 fetch */
+        public final boolean targetsFetched;
+
+        public Preflight(boolean hasUncommittedChanges, int aheadCount, boolean targetsFetched) {
+            this.hasUncommittedChanges = hasUncommittedChanges;
+            this.aheadCount = aheadCount;
+            this.targetsFetched = targetsFetched;
+        }
+
+        /**
+         * 是否需要推送当前分支
+         */
+        public boolean needsPush() {
+            return hasUncommittedChanges || aheadCount > 0 || aheadCount == -1;
+        }
+    }
+
+    /**
+     * 进度：步骤之间检查取消并显示当前步骤
+     */
+    public interface Progress {
+        /**
+         * 已取消时抛出异常
+         */
+        void checkCanceled();
+
+        void setText(String text);
+    }
+
+    /**
+     * 单个仓库未完成合并日志的持久化
+     */
+    public interface Journals {
+        MergeJournal load();
+
+        void save(MergeJournal journal);
+
+        void clear();
+    }
+
+    /**
+     * 合并日志输出
+     */
+    public interface Output {
+        void printInfo(String message);
+
+        void printSuccess(String message);
+
+        void printError(String message);
+    }
+}
@@ -0,0 +1,103 @@
+package com.jiuji.mergetodev;
+
+/**
+ * 合并流程（{@link MergeFlow}）用到的 git 操作，不依赖 IDE
+ * 插件中由 {@link GitOperationHelper} 实现（Git4Idea + 常驻查询进程），基准测试中由命令行实现
+ */
+public interface MergeGit {
+
+    /**
+     * 检查当前仓库是否有未提交的更改
+     */
+    boolean hasUncommittedChanges();
+
+    /**
+     * 获取本地分支领先远程的提交数
+     * @return 领先的提交数，-1 表示远程分支不存在
+     */
+    int getAheadCount(String branch);
+
+    /**
+     * fetch 分支（静默，不打印日志），多个分支合并为一次网络请求；超时后返回 false
+     */
+    boolean fetchSilent(String... branches);
+
+    /**
+     * 添加所有文件并提交
+     */
+    boolean commitAll(String message);
+
+    /**
+     * fetch 远程分支，多个分支合并为一次网络请求
+     */
+    boolean fetch(String... branches);
+
+    /**
+     * 切换分支
+     */
+    boolean checkout(String branch);
+
+    /**
+     * 放弃进行中的合并（git merge --abort）
+     */
+    boolean abortMerge();
+
+    /**
+     * 合并指定分支到当前分支
+     */
+    boolean merge(String branch);
+
+    /**
+     * 推送到远程，多个 refspec 合并为一次推送
+     * 支持分支名或 "提交哈希:refs/heads/分支" 形式
+     */
+    boolean push(String... refspecs);
+
+    /**
+     * 推送到远程并解析被拒绝的分支，供竞争重试判断
+     * @param atomic 使用 --atomic，所有 refspec 要么全部更新要么全部不更新
+     */
+    PushResult pushForResult(boolean atomic, String... refspecs);
+
+    /**
+     * 解析引用对应的提交哈希
+     * @return 提交哈希，引用不存在时返回 null
+     */
+    String revParse(String ref);
+
+    /**
+     * 判断 ancestor 是否为 descendant 的祖先提交
+     */
+    boolean isAncestor(String ancestor, String descendant);
+
+    /**
+     * 在对象库中试合并两个提交，不触碰工作区和索引
+     */
+    TreeMergeResult mergeTree(String ours, String theirs);
+
+    /**
+     * 基于合并结果树创建合并提交
+     * @return 新提交哈希，失败时返回 null
+     */
+    String commitTree(String tree, String message, String... parents);
+
+    /**
+     * 本地存在该分支且可快进时，将其指向新提交（不检出）
+     */
+    void fastForwardLocalBranch(String branch, String commit);
+
+    /**
+     * 重新读取仓库状态（当前分支、是否合并中）
+     */
+    void refresh();
+
+    /**
+     * 当前分支名，游离 HEAD 时返回 null
+     */
+    String currentBranch();
+
+    /**
+     * 是否有进行中的合并
+     */
+    boolean isMerging();
+}
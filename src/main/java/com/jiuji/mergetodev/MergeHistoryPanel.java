@@ -0,0 +1,98 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Quick Merge 工具窗口中的耗时统计页：按步骤显示最近合并的 P50/P95，支持导出
+ */
+public class MergeHistoryPanel extends JPanel implements Disposable {
+
+    static final String TAB_NAME = "耗时统计";
+
+    private static final String[] COLUMNS = {"步骤", "次数", "P50 (ms)", "P95 (ms)", "最大 (ms)", "失败", "平均输出行数"};
+
+    private final Project project;
+    private final MergeHistoryService history;
+    private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JLabel summaryLabel = new JLabel();
+
+    public MergeHistoryPanel(Project project) {
+        super(new BorderLayout());
+        this.project = project;
+        this.history = MergeHistoryService.getInstance(project);
+
+        // 工具栏
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(summaryLabel);
+        JButton exportCsvButton = new JButton("导出 CSV");
+        exportCsvButton.addActionListener(e -> export("csv", history::toCsv));
+        toolbar.add(exportCsvButton);
+        JButton exportJsonButton = new JButton("导出 JSON");
+        exportJsonButton.addActionListener(e -> export("json", history::toJson));
+        toolbar.add(exportJsonButton);
+        JButton clearButton = new JButton("清空");
+        clearButton.addActionListener(e -> history.clear());
+        toolbar.add(clearButton);
+        add(toolbar, BorderLayout.NORTH);
+
+        JBTable table = new JBTable(model);
+        table.getEmptyText().setText("暂无合并记录");
+        add(new JBScrollPane(table), BorderLayout.CENTER);
+
+        history.addListener(() -> ApplicationManager.getApplication().invokeLater(this::refresh), this);
+        refresh();
+    }
+
+    /**
+     * 重新统计并刷新表格（EDT）
+     */
+    private void refresh() {
+        List<MergeHistoryService.StepStats> stats = history.computeStepStats();
+        model.setRowCount(0);
+        for (MergeHistoryService.StepStats stat : stats) {
+            model.addRow(new Object[]{stat.step, stat.count, stat.p50, stat.p95, stat.max, stat.failures, stat.avgOutputLines});
+        }
+        summaryLabel.setText("最近 " + history.getRuns().size() + " 次合并（最多保留 " + MergeHistoryService.MAX_RUNS + " 次）");
+    }
+
+    private void export(String extension, Supplier<String> content) {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("导出合并耗时", "", extension);
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save("quick-merge-history." + extension);
+        if (target == null) {
+            return;
+        }
+        try {
+            Files.writeString(target.getFile().toPath(), content.get(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Messages.showErrorDialog(project, "导出失败：" + e.getMessage(), "错误");
+        }
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
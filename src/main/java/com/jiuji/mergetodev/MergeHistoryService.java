@@ -0,0 +1,204 @@
+package com.jiuji.mergetodev;
+
+import com.google.gson.GsonBuilder;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 合并耗时历史：保存最近若干次合并的各步骤耗时（工作区文件，不进入版本库），并统计 P50/P95
+ */
+@Service(Service.Level.PROJECT)
+@State(
+    name = "QuickMergeHistory",
+    storages = @Storage(StoragePathMacros.WORKSPACE_FILE)
+)
+public final class MergeHistoryService implements PersistentStateComponent<MergeHistoryService.State> {
+
+    /** 最多保留的合并记录数 */
+    static final int MAX_RUNS = 200;
+    /** 统计中代表整次合并的行 */
+    static final String TOTAL_STEP = "合并总耗时";
+
+    private volatile State myState = new State();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public static MergeHistoryService getInstance(@NotNull Project project) {
+        return project.getService(MergeHistoryService.class);
+    }
+
+    @Override
+    public @Nullable State getState() {
+        return myState;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        myState = state;
+    }
+
+    /**
+     * 追加一次合并记录，超出上限时丢弃最早的记录
+     */
+    public synchronized void add(@NotNull MergeRunRecord record) {
+        // 整体替换列表，序列化线程读取的始终是完整快照
+        List<MergeRunRecord> runs = new ArrayList<>(myState.runs);
+        runs.add(record);
+        if (runs.size() > MAX_RUNS) {
+            runs = new ArrayList<>(runs.subList(runs.size() - MAX_RUNS, runs.size()));
+        }
+        myState.runs = runs;
+        listeners.forEach(Runnable::run);
+    }
+
+    public synchronized void clear() {
+        myState.runs = new ArrayList<>();
+        listeners.forEach(Runnable::run);
+    }
+
+    public List<MergeRunRecord> getRuns() {
+        return Collections.unmodifiableList(myState.runs);
+    }
+
+    /**
+     * 注册历史变化监听，回调可能在后台线程执行
+     */
+    public void addListener(@NotNull Runnable listener, @NotNull Disposable parentDisposable) {
+        listeners.add(listener);
+        Disposer.register(parentDisposable, () -> listeners.remove(listener));
+    }
+
+    /**
+     * 按步骤统计所有记录的耗时分布，首行为整次合并
+     */
+    public List<StepStats> computeStepStats() {
+        Map<String, List<MergeRunRecord.StepTiming>> byStep = new LinkedHashMap<>();
+        List<Long> totals = new ArrayList<>();
+        int failedRuns = 0;
+        for (MergeRunRecord run : myState.runs) {
+            totals.add(run.totalMs);
+            if (!run.success) {
+                failedRuns++;
+            }
+            for (MergeRunRecord.StepTiming timing : run.steps) {
+                byStep.computeIfAbsent(timing.step, k -> new ArrayList<>()).add(timing);
+            }
+        }
+
+        List<StepStats> stats = new ArrayList<>();
+        if (!totals.isEmpty()) {
+            stats.add(new StepStats(TOTAL_STEP, totals, failedRuns, 0));
+        }
+        byStep.forEach((step, timings) -> {
+            List<Long> durations = new ArrayList<>();
+            int failures = 0;
+            long lines = 0;
+            for (MergeRunRecord.StepTiming timing : timings) {
+                durations.add(timing.durationMs);
+                lines += timing.outputLines;
+                if (!timing.success) {
+                    failures++;
+                }
+            }
+            stats.add(new StepStats(step, durations, failures, lines / timings.size()));
+        });
+        return stats;
+    }
+
+    /**
+     * 导出为 CSV：每个步骤一行
+     */
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder("timestamp,repository,branch,targets,run_success,total_ms,"
+                + "step,command,duration_ms,exit_code,output_lines,output_bytes,success\n");
+        for (MergeRunRecord run : myState.runs) {
+            for (MergeRunRecord.StepTiming timing : run.steps) {
+                sb.append(run.timestamp).append(',')
+                        .append(csv(run.repository)).append(',')
+                        .append(csv(run.branch)).append(',')
+                        .append(csv(run.targets)).append(',')
+                        .append(run.success).append(',')
+                        .append(run.totalMs).append(',')
+                        .append(csv(timing.step)).append(',')
+                        .append(csv(timing.command)).append(',')
+                        .append(timing.durationMs).append(',')
+                        .append(timing.exitCode).append(',')
+                        .append(timing.outputLines).append(',')
+                        .append(timing.outputBytes).append(',')
+                        .append(timing.success).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 导出为 JSON：完整的合并记录数组
+     */
+    public String toJson() {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(myState.runs);
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * 单个步骤的耗时分布
+     */
+    public static class StepStats {
+        public final String step;
+        public final int count;
+        public final long p50;
+        public final long p95;
+        public final long max;
+        public final int failures;
+        public final long avgOutputLines;
+
+        StepStats(String step, List<Long> durations, int failures, long avgOutputLines) {
+            List<Long> sorted = new ArrayList<>(durations);
+            Collections.sort(sorted);
+            this.step = step;
+            this.count = sorted.size();
+            this.p50 = percentile(sorted, 50);
+            this.p95 = percentile(sorted, 95);
+            this.max = sorted.get(sorted.size() - 1);
+            this.failures = failures;
+            this.avgOutputLines = avgOutputLines;
+        }
+
+        /**
+         * 最近秩法取百分位
+         */
+        private static long percentile(List<Long> sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+            return sorted.get(Math.max(0, rank - 1));
+        }
+    }
+
+    /**
+     * 持久化状态
+     */
+    public static class State {
+        public List<MergeRunRecord> runs = new ArrayList<>();
+    }
+}
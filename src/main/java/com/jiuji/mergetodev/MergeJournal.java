@@ -0,0 +1,142 @@
+package com.jiuji.mergetodev;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个仓库未完成合并的步骤日志（可序列化）：每个步骤记录输入（相关提交哈希）、状态与产出，
+ * 重试时跳过输入未变化的已完成步骤；合并全部成功后删除
+ */
+public class MergeJournal {
+
+    /** 切换到目标分支的步骤名前缀，后接目标分支名 */
+    static final String CHECKOUT_PREFIX = "checkout:";
+    /** 超过该时间未更新的日志视为过期，不再续跑 */
+    static final long MAX_AGE_MS = TimeUnit.HOURS.toMillis(24);
+
+    /** 发起合并时的当前分支 */
+    public String branch;
+    /** 源分支与目标分支，如 "feature→dev,test"，与本次合并一致时才续跑 */
+    public String sources;
+    /** 最后更新时间（毫秒时间戳） */
+    public long updatedAt;
+    public List<Step> steps = new ArrayList<>();
+
+    public MergeJournal() {
+    }
+
+    public MergeJournal(String branch, String sources) {
+        this.branch = branch;
+        this.sources = sources;
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    public Step find(String name) {
+        for (Step step : steps) {
+            if (step.name.equals(name)) {
+                return step;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 步骤是否已以相同输入完成
+     */
+    public boolean isDone(String name, String inputs) {
+        Step step = find(name);
+        return step != null && step.status == Status.DONE && Objects.equals(step.inputs, inputs);
+    }
+
+    /**
+     * 记录步骤状态，同名步骤覆盖
+     */
+    public void record(String name, String inputs, Status status, String output) {
+        Step step = find(name);
+        if (step == null) {
+            step = new Step();
+            step.name = name;
+            steps.add(step);
+        }
+        step.inputs = inputs;
+        step.status = status;
+        step.output = output;
+        step.time = System.currentTimeMillis();
+        updatedAt = step.time;
+    }
+
+    /**
+     * 第一个未完成的步骤，全部完成时返回 null
+     */
+    public Step firstIncomplete() {
+        for (Step step : steps) {
+            if (step.status != Status.DONE) {
+                return step;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 已切换过去但未切回的目标分支（合并冲突或中断时留在目标分支上），没有时返回 null
+     */
+    public String strandedTarget() {
+        for (Step step : steps) {
+            if (step.name.startsWith(CHECKOUT_PREFIX) && step.status != Status.DONE) {
+                return step.name.substring(CHECKOUT_PREFIX.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否已超过 MAX_AGE_MS 未更新
+     * @param now 当前时间（毫秒时间戳）
+     */
+    public boolean isExpired(long now) {
+        return now - updatedAt > MAX_AGE_MS;
+    }
+
+    public MergeJournal copy() {
+        MergeJournal copy = new MergeJournal(branch, sources);
+        copy.updatedAt = updatedAt;
+        for (Step step : steps) {
+            copy.steps.add(step.copy());
+        }
+        return copy;
+    }
+
+    /**
+     * 步骤状态
+     */
+    public enum Status {
+        STARTED, DONE, FAILED
+    }
+
+    /**
+     * 一个步骤
+     */
+    public static class Step {
+        /** 步骤名，如 commit、fetch、merge:feature→dev、checkout:dev、push */
+        public String name;
+        /** 输入摘要（相关分支的提交哈希），用于判断能否跳过 */
+        public String inputs;
+        public Status status;
+        /** 产出，如合并提交哈希 */
+        public String output;
+        /** 记录时间（毫秒时间戳） */
+        public long time;
+
+        Step copy() {
+            Step copy = new Step();
+            copy.name = name;
+            copy.inputs = inputs;
+            copy.status = status;
+            copy.output = output;
+            copy.time = time;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 各仓库未完成合并的步骤日志（工作区文件，不进入版本库），IDE 重启后仍可续跑
+ */
+@Service(Service.Level.PROJECT)
+@State(
+    name = "QuickMergeJournal",
+    storages = @Storage(StoragePathMacros.WORKSPACE_FILE)
+)
+public final class MergeJournalService implements PersistentStateComponent<MergeJournalService.State> {
+
+    private volatile State myState = new State();
+
+    public static MergeJournalService getInstance(@NotNull Project project) {
+        return project.getService(MergeJournalService.class);
+    }
+
+    @Override
+    public @Nullable State getState() {
+        return myState;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        myState = state;
+    }
+
+    /**
+     * 获取仓库未过期的日志副本
+     */
+    public synchronized @Nullable MergeJournal get(@NotNull GitRepository repository) {
+        MergeJournal journal = myState.journals.get(key(repository));
+        if (journal == null) {
+            return null;
+        }
+        if (journal.isExpired(System.currentTimeMillis())) {
+            clear(repository);
+            return null;
+        }
+        return journal.copy();
+    }
+
+    /**
+     * 保存日志（整体替换，序列化线程读取的始终是完整快照）
+     */
+    public synchronized void save(@NotNull GitRepository repository, @NotNull MergeJournal journal) {
+        Map<String, MergeJournal> journals = new LinkedHashMap<>(myState.journals);
+        journals.put(key(repository), journal.copy());
+        myState.journals = journals;
+    }
+
+    /**
+     * 合并成功后删除日志
+     */
+    public synchronized void clear(@NotNull GitRepository repository) {
+        if (!myState.journals.containsKey(key(repository))) {
+            return;
+        }
+        Map<String, MergeJournal> journals = new LinkedHashMap<>(myState.journals);
+        journals.remove(key(repository));
+        myState.journals = journals;
+    }
+
+    /**
+     * 从 branch 发起的合并是否有未完成的步骤
+     */
+    public boolean hasPending(@NotNull GitRepository repository, @NotNull String branch) {
+        MergeJournal journal = get(repository);
+        return journal != null && branch.equals(journal.branch) && journal.firstIncomplete() != null;
+    }
+
+    /**
+     * 上次合并中断后仍停留在目标分支上时，返回发起合并的原分支；否则返回 null
+     */
+    public @Nullable String strandedOriginalBranch(@NotNull GitRepository repository) {
+        MergeJournal journal = get(repository);
+        if (journal == null) {
+            return null;
+        }
+        String target = journal.strandedTarget();
+        return target != null && target.equals(repository.getCurrentBranchName()) ? journal.branch : null;
+    }
+
+    private static String key(GitRepository repository) {
+        return repository.getRoot().getPath();
+    }
+
+    /**
+     * 持久化状态
+     */
+    public static class State {
+        /** 仓库根目录 → 未完成合并的日志 */
+        public Map<String, MergeJournal> journals = new LinkedHashMap<>();
+    }
+}
@@ -1,36 +1,107 @@
 package com.jiuji.mergetodev;
 
+import com.intellij.execution.filters.HyperlinkInfo;
 import com.intellij.execution.filters.TextConsoleBuilderFactory;
 import com.intellij.execution.ui.ConsoleView;
 import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowAnchor;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.content.ContentManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 实时日志控制台管理器
  */
-public class MergeLogConsole {
+public class MergeLogConsole implements MergeFlow.Output {
 
+    private static final Logger LOG = Logger.getInstance(MergeLogConsole.class);
     private static final String TOOL_WINDOW_ID = "Quick Merge";
-    private ConsoleView consoleView;
+    private static final String LOG_TAB_NAME = "日志";
+    /** 刷新间隔：期间产生的日志合并为一次 EDT 调度 */
+    private static final long FLUSH_INTERVAL_MS = 50;
+    /** 单次刷新写入控制台的最大字符数，超出部分留到下一次刷新 */
+    private static final int MAX_FLUSH_CHARS = 64 * 1024;
+    /** 内存队列中最多积压的行数；超出后的日志按顺序写入临时文件，队列有空位时再读回，日志不会丢失 */
+    private static final int MAX_PENDING_LINES = 10_000;
+    /** 临时文件中日志类型的编号；编号 TYPES.length 表示链接 */
+    private static final ConsoleViewContentType[] TYPES = {ConsoleViewContentType.NORMAL_OUTPUT,
+            ConsoleViewContentType.USER_INPUT, ConsoleViewContentType.ERROR_OUTPUT, ConsoleViewContentType.SYSTEM_OUTPUT};
+
+    private volatile ConsoleView consoleView;
+    /** 待写入控制台的日志，后台线程追加，EDT 批量取出；视图创建前的日志保留在队列中 */
+    private final Queue<Line> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    /** 内存队列已满后溢出的日志，null 表示没有溢出；读写都在 overflowLock 内 */
+    private volatile Overflow overflow;
+    private final Object overflowLock = new Object();
+    /** 日志页已关闭，不再创建临时文件 */
+    private boolean closed;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
     private final Project project;
+    /** 日志页的生命周期：日志页被下次合并替换或项目关闭时释放 */
+    private final Disposable lifetime = Disposer.newDisposable("Quick Merge log");
+    /** 带前缀的子控制台共享父控制台的视图，多仓库并行时区分日志来源 */
+    private final MergeLogConsole parent;
+    private final String prefix;
 
     public MergeLogConsole(Project project) {
+        this(project, null, "");
+    }
+
+    private MergeLogConsole(Project project, MergeLogConsole parent, String prefix) {
         this.project = project;
+        this.parent = parent;
+        this.prefix = prefix;
+    }
+
+    /**
+     * 创建每行带前缀的子控制台，输出到同一个视图
+     */
+    public MergeLogConsole withPrefix(@NotNull String linePrefix) {
+        MergeLogConsole root = parent != null ? parent : this;
+        return new MergeLogConsole(project, root, prefix + linePrefix);
+    }
+
+    /**
+     * 日志页的生命周期，子控制台返回所属根控制台的生命周期；只在 init() 之后注册子对象
+     */
+    public Disposable getLifetime() {
+        return parent != null ? parent.getLifetime() : lifetime;
     }
 
     /**
-     * 初始化并显示控制台
+     * 初始化并显示控制台（异步），调用后即可直接打印日志，视图就绪后按顺序输出
      */
     public void init() {
+        // 打印开始信息
+        printInfo("========== Quick Branch Merge 开始执行 ==========\n\n");
+
         ApplicationManager.getApplication().invokeLater(() -> {
             ToolWindowManager toolWindowManager = ToolWindowManager.getInstance(project);
             ToolWindow toolWindow = toolWindowManager.getToolWindow(TOOL_WINDOW_ID);
@@ -43,23 +114,38 @@ public class MergeLogConsole {
             // 创建控制台视图
             consoleView = TextConsoleBuilderFactory.getInstance().createBuilder(project).getConsole();
 
-            // 清空并添加内容
+            // 替换上一次的日志页，保留耗时统计页
             ContentFactory contentFactory = ContentFactory.getInstance();
-            toolWindow.getContentManager().removeAllContents(true);
-            Content content = contentFactory.createContent(consoleView.getComponent(), "", false);
-            toolWindow.getContentManager().addContent(content);
+            ContentManager contentManager = toolWindow.getContentManager();
+            for (Content existing : contentManager.getContents()) {
+                if (LOG_TAB_NAME.equals(existing.getDisplayName())) {
+                    contentManager.removeContent(existing, true);
+                }
+            }
+            Content content = contentFactory.createContent(consoleView.getComponent(), LOG_TAB_NAME, false);
+            content.setDisposer(consoleView);
+            Disposer.register(consoleView, lifetime);
+            contentManager.addContent(content, 0);
+            if (contentManager.findContent(MergeHistoryPanel.TAB_NAME) == null) {
+                MergeHistoryPanel historyPanel = new MergeHistoryPanel(project);
+                Content historyContent = contentFactory.createContent(historyPanel, MergeHistoryPanel.TAB_NAME, false);
+                historyContent.setDisposer(historyPanel);
+                contentManager.addContent(historyContent);
+            }
+            contentManager.setSelectedContent(content);
 
             // 显示工具窗口
             toolWindow.show();
 
-            // 打印开始信息
-            printInfo("========== Quick Branch Merge 开始执行 ==========\n\n");
+            // 输出就绪前积压的日志
+            scheduleFlush();
         });
     }
 
     /**
      * 打印信息日志（白色）
      */
+    @Override
     public void printInfo(@NotNull String message) {
         print(message, ConsoleViewContentType.NORMAL_OUTPUT);
     }
@@ -67,6 +153,7 @@ public class MergeLogConsole {
     /**
      * 打印成功日志（绿色）
      */
+    @Override
     public void printSuccess(@NotNull String message) {
         print("✓ " + message, ConsoleViewContentType.USER_INPUT);
     }
@@ -74,6 +161,7 @@ public class MergeLogConsole {
     /**
      * 打印错误日志（红色）
      */
+    @Override
     public void printError(@NotNull String message) {
         print("✗ " + message, ConsoleViewContentType.ERROR_OUTPUT);
     }
@@ -82,7 +170,7 @@ public class MergeLogConsole {
      * 打印命令输出（灰色）
      */
     public void printOutput(@NotNull String message) {
-        print("  " + message.replace("\n", "\n  "), ConsoleViewContentType.SYSTEM_OUTPUT);
+        print(GitOutputFormat.indent(message, "  "), ConsoleViewContentType.SYSTEM_OUTPUT);
     }
 
     /**
@@ -96,22 +184,262 @@ public class MergeLogConsole {
         }
     }
 
+    /**
+     * 打印取消标记
+     */
+    public void printCancelled() {
+        print("\n========== 合并已取消 ==========\n", ConsoleViewContentType.ERROR_OUTPUT);
+    }
+
+    /**
+     * 打印一行可点击的链接，点击时在 EDT 执行 onClick
+     */
+    public void printLink(@NotNull String text, @NotNull Runnable onClick) {
+        if (parent != null) {
+            parent.printLink(prefix + text, onClick);
+            return;
+        }
+        add(new Line(text, ConsoleViewContentType.NORMAL_OUTPUT, p -> onClick.run()));
+    }
+
     private void print(@NotNull String message, @NotNull ConsoleViewContentType type) {
-        ApplicationManager.getApplication().invokeLater(() -> {
-            if (consoleView != null) {
-                consoleView.print(message + "\n", type);
+        if (parent != null) {
+            parent.print(prefix + message.replace("\n", "\n" + prefix), type);
+            return;
+        }
+        add(new Line(message + "\n", type, null));
+    }
+
+    private void add(Line line) {
+        if (overflow == null && pendingCount.get() < MAX_PENDING_LINES) {
+            enqueue(line);
+        } else {
+            spill(line);
+        }
+        scheduleFlush();
+    }
+
+    private void enqueue(Line line) {
+        pending.add(line);
+        pendingCount.incrementAndGet();
+    }
+
+    /**
+     * 内存队列已满，或已有日志在临时文件中时，追加到临时文件末尾以保持顺序
+     */
+    private void spill(Line line) {
+        synchronized (overflowLock) {
+            if (overflow == null && pendingCount.get() < MAX_PENDING_LINES) {
+                enqueue(line);
+                return;
             }
-        });
+            try {
+                if (overflow == null) {
+                    if (closed) {
+                        return;
+                    }
+                    overflow = new Overflow();
+                    if (!Disposer.tryRegister(getLifetime(), this::closeOverflow)) {
+                        closeOverflow();
+                        return;
+                    }
+                }
+                overflow.write(line);
+            } catch (IOException e) {
+                // 写不进临时文件时先读回已溢出的日志，再把这一行留在内存中
+                LOG.info("无法写入日志临时文件", e);
+                refill(Integer.MAX_VALUE);
+                enqueue(line);
+            }
+        }
+    }
+
+    /**
+     * 按顺序把临时文件中的日志读回内存队列，直到队列达到 limit 行；读完后删除临时文件
+     */
+    private void refill(int limit) {
+        if (overflow == null) {
+            return;
+        }
+        synchronized (overflowLock) {
+            Overflow current = overflow;
+            if (current == null) {
+                return;
+            }
+            try {
+                while (!current.isEmpty() && pendingCount.get() < limit) {
+                    enqueue(current.read());
+                }
+            } catch (IOException e) {
+                LOG.warn("无法读取日志临时文件", e);
+                enqueue(new Line("✗ 读取日志临时文件失败，其余 " + current.remaining() + " 行日志无法显示\n",
+                        ConsoleViewContentType.ERROR_OUTPUT, null));
+                current.close();
+                overflow = null;
+                return;
+            }
+            if (current.isEmpty()) {
+                current.close();
+                overflow = null;
+            }
+        }
+    }
+
+    /**
+     * 日志页关闭时删除临时文件
+     */
+    private void closeOverflow() {
+        synchronized (overflowLock) {
+            closed = true;
+            if (overflow != null) {
+                overflow.close();
+                overflow = null;
+            }
+        }
+    }
+
+    /**
+     * 合并同一刷新周期内的日志，避免每行一次 invokeLater 挤占事件队列
+     * 溢出到临时文件的日志在后台线程读回，EDT 只处理内存队列
+     */
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+                refill(MAX_PENDING_LINES);
+                ApplicationManager.getApplication().invokeLater(this::flush);
+            }, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 在 EDT 上批量写入控制台，相邻同类型日志合并为一次 print
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        ConsoleView view = consoleView;
+        if (view == null) {
+            return;
+        }
+
+        int written = 0;
+        StringBuilder batch = new StringBuilder();
+        ConsoleViewContentType batchType = null;
+        Line line;
+        while (written < MAX_FLUSH_CHARS && (line = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            if (batchType != null && (batchType != line.type || line.link != null)) {
+                view.print(batch.toString(), batchType);
+                batch.setLength(0);
+            }
+            if (line.link != null) {
+                view.printHyperlink(line.text, line.link);
+                batch.append('\n');
+            } else {
+                batch.append(line.text);
+            }
+            batchType = line.type;
+            written += line.text.length();
+        }
+        if (batchType != null) {
+            view.print(batch.toString(), batchType);
+        }
+
+        if (!pending.isEmpty() || overflow != null) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 待写入的一段日志
+     */
+    private static class Line {
+        final String text;
+        final ConsoleViewContentType type;
+        /** 链接行的点击动作，普通日志为 null */
+        final HyperlinkInfo link;
+
+        Line(String text, ConsoleViewContentType type, HyperlinkInfo link) {
+            this.text = text;
+            this.type = type;
+            this.link = link;
+        }
     }
 
     /**
-     * 等待控制台初始化完成
+     * 溢出到临时文件的日志，先进先出（调用方持有 overflowLock）
+     * 每行记为：类型编号、UTF-8 字节数、内容；链接的点击动作按顺序留在内存中
      */
-    public void waitForInit() {
-        try {
-            // 给控制台初始化一点时间
-            Thread.sleep(300);
-        } catch (InterruptedException ignored) {
+    private static final class Overflow {
+        private final Path file;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        /** 已写入、尚未读回的行数 */
+        private int count;
+        private final Queue<HyperlinkInfo> links = new ArrayDeque<>();
+
+        Overflow() throws IOException {
+            file = Files.createTempFile("quick-merge-console", ".log");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+
+        void write(Line line) throws IOException {
+            byte[] text = line.text.getBytes(StandardCharsets.UTF_8);
+            int type;
+            if (line.link != null) {
+                type = TYPES.length;
+                links.add(line.link);
+            } else {
+                // 未列出的类型按命令输出记录
+                type = 0;
+                while (type < TYPES.length - 1 && TYPES[type] != line.type) {
+                    type++;
+                }
+            }
+            out.writeByte(type);
+            out.writeInt(text.length);
+            out.write(text);
+            count++;
+        }
+
+        Line read() throws IOException {
+            // 读取前写出缓冲区，保证已计数的行完整落盘
+            out.flush();
+            int type = in.readUnsignedByte();
+            int length = in.readInt();
+            byte[] text = in.readNBytes(length);
+            if (type > TYPES.length || text.length != length) {
+                throw new EOFException("日志临时文件不完整");
+            }
+            count--;
+            String content = new String(text, StandardCharsets.UTF_8);
+            if (type == TYPES.length) {
+                return new Line(content, ConsoleViewContentType.NORMAL_OUTPUT, links.poll());
+            }
+            return new Line(content, TYPES[type], null);
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        int remaining() {
+            return count;
+        }
+
+        void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                LOG.info("无法关闭日志临时文件 " + file, e);
+            }
+            // 先关闭再删除，Windows 上无法删除打开的文件
+            try {
+                in.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.info("无法删除日志临时文件 " + file, e);
+            }
         }
     }
 }
@@ -0,0 +1,236 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import git4idea.repo.GitRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 单个仓库的合并流水线：在 IDE 中执行 {@link MergeFlow}（进度、取消后恢复、日志持久化与合并历史），并支持合并队列合批
+ */
+public class MergePipeline {
+
+    private final GitRepository repository;
+    private final GitOperationHelper helper;
+    private final MergeLogConsole console;
+    private final String currentBranch;
+    /** 源分支 → 该分支要合并到的目标分支；合并队列合批时包含多个源分支 */
+    private final Map<String, List<String>> sources;
+    /** 所有源分支的目标分支（去重，保持顺序），记入合并历史 */
+    private final List<String> targetBranches;
+    private final String commitMessage;
+    /** 需要推送到远程的源分支 */
+    private final Set<String> pushBranches;
+    private final boolean checkoutFreeMerge;
+    private final boolean batchedNetwork;
+    private final boolean targetsFetched;
+    private final String progressPrefix;
+    private int pushAttempts;
+
+    /**
+     * @param commitMessage     提交信息，null 表示无需提交
+     * @param pushCurrentBranch 是否需要推送当前分支
+     * @param targetsFetched    预检查阶段是否已 fetch 所有目标分支
+     * @param progressPrefix    进度文本前缀，多仓库并行时用于区分仓库，null 表示单仓库
+     */
+    public MergePipeline(GitRepository repository, GitOperationHelper helper, MergeLogConsole console,
+                         String currentBranch, List<String> targetBranches, String commitMessage,
+                         boolean pushCurrentBranch, boolean targetsFetched, String progressPrefix) {
+        this(repository, helper, console, currentBranch, Map.of(currentBranch, targetBranches), commitMessage,
+                pushCurrentBranch ? Set.of(currentBranch) : Set.of(), targetsFetched, progressPrefix);
+    }
+
+    private MergePipeline(GitRepository repository, GitOperationHelper helper, MergeLogConsole console,
+                          String currentBranch, Map<String, List<String>> sources, String commitMessage,
+                          Set<String> pushBranches, boolean targetsFetched, String progressPrefix) {
+        this.repository = repository;
+        this.helper = helper;
+        this.console = console;
+        this.currentBranch = currentBranch;
+        this.sources = sources;
+        this.targetBranches = sources.values().stream()
+                .flatMap(List::stream)
+                .distinct()
+                .collect(Collectors.toList());
+        this.commitMessage = commitMessage;
+        this.pushBranches = pushBranches;
+        this.checkoutFreeMerge = MergeToDevSettings.getInstance().isCheckoutFreeMerge();
+        this.batchedNetwork = MergeToDevSettings.getInstance().isBatchedNetwork();
+        this.targetsFetched = targetsFetched;
+        this.progressPrefix = progressPrefix;
+    }
+
+    public GitRepository getRepository() {
+        return repository;
+    }
+
+    public MergeLogConsole getConsole() {
+        return console;
+    }
+
+    /**
+     * 将同一仓库排队中的多个请求合为一批执行：一次 fetch、依次合并、一次推送
+     * 批次的结果与推送次数同步给批内每个请求，各步骤耗时写入合并历史
+     * @param recheckWorkingTree 批内有请求排过队：其预检查之后前一批可能已提交工作区，提交前重新检查
+     * @return 是否全部成功
+     */
+    static boolean runBatch(List<MergePipeline> batch, ProgressIndicator indicator, boolean recheckWorkingTree) {
+        MergePipeline pipeline = combine(batch);
+        if (batch.size() > 1) {
+            pipeline.console.printInfo("合并队列中的 " + batch.size() + " 个请求合为一批执行");
+        }
+        if (recheckWorkingTree) {
+            pipeline = pipeline.withCurrentWorkingTree();
+        }
+        long startedAt = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            success = pipeline.run(indicator);
+        } finally {
+            // 记录各 git 调用耗时（含预检查），取消或异常时同样记录
+            MergeHistoryService.getInstance(pipeline.repository.getProject()).add(new MergeRunRecord(
+                    startedAt, pipeline.repository.getRoot().getName(), pipeline.currentBranch, pipeline.targetBranches,
+                    success, System.currentTimeMillis() - startedAt, pipeline.helper.getOperationLog().getTimedEntries()));
+        }
+        for (MergePipeline request : batch) {
+            request.pushAttempts = pipeline.pushAttempts;
+        }
+        return success;
+    }
+
+    /**
+     * 能否与另一请求合为一批：同一仓库、从同一分支发起
+     * 合批只执行一次提交与一次切回原分支，当前分支不同时工作区中的更改与要切回的分支都无法确定
+     */
+    boolean canBatchWith(MergePipeline other) {
+        return repository.equals(other.repository) && currentBranch.equals(other.currentBranch);
+    }
+
+    /**
+     * 合并同一分支发起的多个请求（见 {@link #canBatchWith}）；工作区只有一份，未提交更改一次提交，
+     * 提交信息保留各请求各自的内容；日志输出到最新请求的控制台（当前显示的日志页）
+     */
+    private static MergePipeline combine(List<MergePipeline> batch) {
+        if (batch.size() == 1) {
+            return batch.get(0);
+        }
+        MergePipeline last = batch.get(batch.size() - 1);
+        for (MergePipeline request : batch) {
+            if (!request.canBatchWith(last)) {
+                throw new IllegalArgumentException("不能合批：" + request.currentBranch + " / " + last.currentBranch);
+            }
+        }
+        Map<String, List<String>> sources = new LinkedHashMap<>();
+        Set<String> pushBranches = new LinkedHashSet<>();
+        Set<String> commitMessages = new LinkedHashSet<>();
+        for (MergePipeline request : batch) {
+            if (request.commitMessage != null) {
+                commitMessages.add(request.commitMessage);
+            }
+            request.sources.forEach((sourceBranch, targets) -> {
+                List<String> merged = sources.computeIfAbsent(sourceBranch, k -> new ArrayList<>());
+                targets.stream().filter(target -> !merged.contains(target)).forEach(merged::add);
+            });
+            pushBranches.addAll(request.pushBranches);
+        }
+        // 排队期间远程可能已更新，合批后统一重新 fetch
+        String commitMessage = commitMessages.isEmpty() ? null : String.join("\n\n", commitMessages);
+        return new MergePipeline(last.repository, last.helper, last.console, last.currentBranch, sources,
+                commitMessage, pushBranches, false, last.progressPrefix);
+    }
+
+    /**
+     * 以 git status 重新检查工作区，已无未提交的更改时去掉提交步骤
+     */
+    private MergePipeline withCurrentWorkingTree() {
+        if (commitMessage == null || helper.hasWorkingTreeChanges()) {
+            return this;
+        }
+        console.printInfo("工作区已无未提交的更改（排队期间已由前一批提交），跳过提交");
+        return new MergePipeline(repository, helper, console, currentBranch, sources, null, pushBranches,
+                targetsFetched, progressPrefix);
+    }
+
+    /**
+     * 执行合并流程；取消时终止正在运行的 git 进程并切回原分支，未完成的步骤留在日志中供下次续跑
+     * @return 是否全部成功
+     */
+    public boolean run(ProgressIndicator indicator) {
+        MergeToDevSettings settings = MergeToDevSettings.getInstance();
+        MergeFlow flow = new MergeFlow(helper, console, new RepositoryJournals(), currentBranch, sources,
+                commitMessage, pushBranches, new MergeFlow.Options(checkoutFreeMerge, batchedNetwork, targetsFetched,
+                settings.getPushRetryLimit()));
+        try {
+            return flow.run(new IndicatorProgress(indicator));
+        } catch (ProcessCanceledException e) {
+            // 当前进度（及并行仓库的子进度）已取消，恢复操作在新的进度下执行，只受本地步骤超时限制
+            ProgressManager.getInstance().runProcess(flow::restoreAfterCancel, new EmptyProgressIndicator());
+            throw e;
+        } finally {
+            pushAttempts = flow.getPushAttempts();
+        }
+    }
+
+    /**
+     * 推送的尝试次数（1 表示一次成功）
+     */
+    public int getPushAttempts() {
+        return pushAttempts;
+    }
+
+    /**
+     * 步骤文本显示在进度上；多仓库并行时带仓库前缀显示在第二行
+     */
+    private class IndicatorProgress implements MergeFlow.Progress {
+        private final ProgressIndicator indicator;
+
+        IndicatorProgress(ProgressIndicator indicator) {
+            this.indicator = indicator;
+        }
+
+        @Override
+        public void checkCanceled() {
+            indicator.checkCanceled();
+        }
+
+        @Override
+        public void setText(String text) {
+            if (progressPrefix == null) {
+                indicator.setText(text);
+            } else {
+                indicator.setText2(progressPrefix + text);
+            }
+        }
+    }
+
+    /**
+     * 合并日志持久化到 {@link MergeJournalService}
+     */
+    private class RepositoryJournals implements MergeFlow.Journals {
+        private final MergeJournalService service = MergeJournalService.getInstance(repository.getProject());
+
+        @Override
+        public MergeJournal load() {
+            return service.get(repository);
+        }
+
+        @Override
+        public void save(MergeJournal journal) {
+            service.save(repository, journal);
+        }
+
+        @Override
+        public void clear() {
+            service.clear(repository);
+        }
+    }
+}
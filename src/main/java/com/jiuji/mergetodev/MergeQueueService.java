@@ -0,0 +1,298 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 按仓库串行执行合并，避免两次合并在同一工作区中争抢 checkout/merge
+ * 仓库已有合并在执行时新请求进入队列；排队的请求在前一批结束后合为一批，共用一次 fetch 与一次推送
+ * 每个请求由发起它的后台任务执行，前一批结束后把执行权交给队首请求的线程，取消只影响取消方自己的请求
+ * 预检查同样按仓库串行：合并在常规流程中会切换到目标分支，期间的预检查看到的不是发起合并时的工作区
+ * 后台任务（目标分支预取）只在仓库空闲时执行，合并或预检查开始时将其取消并等待结束，避免两次 fetch 争抢引用锁
+ */
+@Service(Service.Level.PROJECT)
+public final class MergeQueueService {
+
+    /** 等待排队结果时检查取消的间隔 */
+    private static final long WAIT_SLICE_MS = 100;
+
+    /** 仓库根目录 → 队列 */
+    private final Map<String, RepositoryQueue> queues = new ConcurrentHashMap<>();
+
+    public static MergeQueueService getInstance(@NotNull Project project) {
+        return project.getService(MergeQueueService.class);
+    }
+
+    /**
+     * 仓库是否有合并或预检查正在执行
+     */
+    public boolean isBusy(@NotNull GitRepository repository) {
+        RepositoryQueue queue = queues.get(repository.getRoot().getPath());
+        if (queue == null) {
+            return false;
+        }
+        synchronized (queue) {
+            return queue.running || queue.preflight;
+        }
+    }
+
+    /**
+     * 仓库没有合并、预检查与其他后台任务时执行后台任务（后台线程调用）
+     * 期间开始的合并或预检查会取消 indicator 并等待任务结束
+     * @return 仓库忙时不执行，返回 false
+     */
+    public boolean runIfIdle(@NotNull GitRepository repository, @NotNull ProgressIndicator indicator,
+                             @NotNull Runnable task) {
+        RepositoryQueue queue = queues.computeIfAbsent(repository.getRoot().getPath(), k -> new RepositoryQueue());
+        synchronized (queue) {
+            if (queue.running || queue.preflight || queue.background != null) {
+                return false;
+            }
+            queue.background = indicator;
+        }
+        try {
+            task.run();
+        } finally {
+            synchronized (queue) {
+                queue.background = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 等待仓库的合并与其他预检查结束后执行预检查（后台线程调用）；预检查期间新的合并等待其结束再开始
+     */
+    public void runPreflight(@NotNull GitRepository repository, @NotNull ProgressIndicator indicator,
+                             @NotNull Runnable preflight) {
+        RepositoryQueue queue = queues.computeIfAbsent(repository.getRoot().getPath(), k -> new RepositoryQueue());
+        boolean waiting = false;
+        while (true) {
+            synchronized (queue) {
+                if (!queue.running && !queue.preflight && !cancelBackground(queue)) {
+                    queue.preflight = true;
+                    break;
+                }
+            }
+            if (!waiting) {
+                indicator.setText("等待同一仓库的合并完成...");
+                waiting = true;
+            }
+            pause(indicator);
+        }
+        try {
+            preflight.run();
+        } finally {
+            synchronized (queue) {
+                queue.preflight = false;
+            }
+        }
+    }
+
+    /**
+     * 提交合并请求并等待其完成（后台线程调用）
+     * 队列空闲时由当前线程执行；否则排队等待，轮到时由当前线程执行其所在批次，或随前面请求的批次一起完成
+     * 取消只影响当前请求：排队中的请求移出队列，执行中的批次里其他请求放回队首，由下一个请求的线程继续
+     * @return 请求所在批次是否全部成功
+     */
+    public boolean run(@NotNull MergePipeline pipeline, @NotNull ProgressIndicator indicator) {
+        RepositoryQueue queue = queues.computeIfAbsent(pipeline.getRepository().getRoot().getPath(),
+                k -> new RepositoryQueue());
+        Request request = new Request(pipeline);
+        synchronized (queue) {
+            queue.pending.add(request);
+            if (queue.running) {
+                request.queued = true;
+            } else {
+                queue.running = true;
+                request.leader = true;
+            }
+        }
+
+        if (request.queued) {
+            pipeline.getConsole().printInfo("同一仓库已有合并正在执行，已加入队列等待...");
+            indicator.setText("等待同一仓库的合并完成...");
+        }
+        if (!awaitTurn(queue, request, indicator)) {
+            // 已随前面请求的批次执行完成
+            return request.result.getNow(false);
+        }
+        return lead(queue, request, indicator);
+    }
+
+    /**
+     * 等待轮到当前请求执行；取消时移出队列，已并入执行中的批次则提示用户该批次仍会完成
+     * @return true 表示由当前线程执行，false 表示已随其他批次完成
+     */
+    private static boolean awaitTurn(RepositoryQueue queue, Request request, ProgressIndicator indicator) {
+        try {
+            while (true) {
+                synchronized (queue) {
+                    if (request.leader) {
+                        return true;
+                    }
+                    if (request.result.isDone()) {
+                        return false;
+                    }
+                }
+                pause(indicator);
+            }
+        } catch (RuntimeException e) {
+            boolean removed;
+            boolean running;
+            synchronized (queue) {
+                removed = queue.pending.remove(request);
+                running = !removed && !request.result.isDone();
+                if (removed && request.leader) {
+                    // 恰好轮到时取消，交给下一个请求
+                    handOff(queue);
+                }
+            }
+            if (removed) {
+                request.pipeline.getConsole().printInfo("已取消，排队中的合并请求已移出队列");
+            } else if (running) {
+                request.pipeline.getConsole().printError(
+                        "取消时该请求已并入正在执行的合并批次，无法撤回：该批次会继续合并并推送，结果见最新的合并日志");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 执行当前请求所在的批次（当前请求位于队首），结束后把执行权交给队列中的下一个请求
+     * @return 批次是否全部成功
+     */
+    private static boolean lead(RepositoryQueue queue, Request request, ProgressIndicator indicator) {
+        try {
+            awaitPreflight(queue, indicator);
+        } catch (RuntimeException e) {
+            synchronized (queue) {
+                queue.pending.remove(request);
+                handOff(queue);
+            }
+            throw e;
+        }
+
+        // 从队首起取出当前分支相同的连续请求；当前分支不同的请求留到下一批
+        List<Request> batch = new ArrayList<>();
+        boolean queued;
+        synchronized (queue) {
+            while (!queue.pending.isEmpty() && queue.pending.get(0).pipeline.canBatchWith(request.pipeline)) {
+                batch.add(queue.pending.remove(0));
+            }
+            queued = batch.stream().anyMatch(r -> r.queued);
+        }
+
+        List<Request> finished = batch;
+        boolean success = false;
+        try {
+            // 排队过的请求在预检查之后可能已被前一批提交了工作区，执行前重新检查
+            success = MergePipeline.runBatch(batch.stream().map(r -> r.pipeline).collect(Collectors.toList()),
+                    indicator, queued);
+        } catch (ProcessCanceledException e) {
+            // 只取消发起方自己的请求，同批的其他请求放回队首重新执行
+            finished = List.of(request);
+            List<Request> others = batch.stream().filter(r -> r != request).collect(Collectors.toList());
+            synchronized (queue) {
+                others.forEach(r -> r.queued = true);
+                queue.pending.addAll(0, others);
+            }
+            others.forEach(r -> r.pipeline.getConsole().printInfo("所在批次因其他请求取消而中断，已重新排队"));
+            throw e;
+        } finally {
+            for (Request r : finished) {
+                r.result.complete(success);
+            }
+            synchronized (queue) {
+                handOff(queue);
+            }
+        }
+        return success;
+    }
+
+    /**
+     * 等待正在执行的预检查与后台任务结束；此时已标记为运行中，不会再开始新的预检查或后台任务
+     */
+    private static void awaitPreflight(RepositoryQueue queue, ProgressIndicator indicator) {
+        while (true) {
+            synchronized (queue) {
+                if (!queue.preflight && !cancelBackground(queue)) {
+                    return;
+                }
+            }
+            pause(indicator);
+        }
+    }
+
+    /**
+     * 取消正在执行的后台任务（调用方持有队列锁）
+     * @return 是否仍有后台任务未结束
+     */
+    private static boolean cancelBackground(RepositoryQueue queue) {
+        if (queue.background == null) {
+            return false;
+        }
+        queue.background.cancel();
+        return true;
+    }
+
+    /**
+     * 把执行权交给队首的请求，由其等待中的线程执行；队列为空时结束运行（调用方持有队列锁）
+     */
+    private static void handOff(RepositoryQueue queue) {
+        if (queue.pending.isEmpty()) {
+            queue.running = false;
+        } else {
+            queue.pending.get(0).leader = true;
+        }
+    }
+
+    private static void pause(ProgressIndicator indicator) {
+        indicator.checkCanceled();
+        try {
+            Thread.sleep(WAIT_SLICE_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException();
+        }
+    }
+
+    /**
+     * 单个仓库的排队状态
+     */
+    private static class RepositoryQueue {
+        final List<Request> pending = new ArrayList<>();
+        boolean running;
+        /** 有预检查正在执行 */
+        boolean preflight;
+        /** 正在执行的后台任务的进度，null 表示没有 */
+        ProgressIndicator background;
+    }
+
+    /**
+     * 排队的请求；leader 与 queued 在队列锁内读写
+     */
+    private static class Request {
+        final MergePipeline pipeline;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        /** 轮到由该请求的线程执行 */
+        boolean leader;
+        /** 曾在队列中等待（预检查结果可能已过时） */
+        boolean queued;
+
+        Request(MergePipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.jiuji.mergetodev;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次合并的耗时记录（可序列化，用于本地历史）
+ */
+public class MergeRunRecord {
+
+    /** 开始时间（毫秒时间戳） */
+    public long timestamp;
+    public String repository;
+    public String branch;
+    public String targets;
+    public boolean success;
+    public long totalMs;
+    public List<StepTiming> steps = new ArrayList<>();
+
+    public MergeRunRecord() {
+    }
+
+    public MergeRunRecord(long timestamp, String repository, String branch, List<String> targets,
+                          boolean success, long totalMs, List<GitOperationLog.TimedEntry> entries) {
+        this.timestamp = timestamp;
+        this.repository = repository;
+        this.branch = branch;
+        this.targets = String.join(",", targets);
+        this.success = success;
+        this.totalMs = totalMs;
+        for (GitOperationLog.TimedEntry entry : entries) {
+            steps.add(new StepTiming(entry));
+        }
+    }
+
+    /**
+     * 单个 git 调用的耗时
+     */
+    public static class StepTiming {
+        public String step;
+        public String command;
+        public long durationMs;
+        public int exitCode;
+        public long outputLines;
+        public long outputBytes;
+        public boolean success;
+
+        public StepTiming() {
+        }
+
+        StepTiming(GitOperationLog.TimedEntry entry) {
+            this.step = entry.step;
+            this.command = entry.operation;
+            this.durationMs = entry.durationMs;
+            this.exitCode = entry.exitCode;
+            this.outputLines = entry.outputLines;
+            this.outputBytes = entry.outputBytes;
+            this.success = entry.success;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.dvcs.repo.VcsRepositoryManager;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import com.intellij.vcs.log.Hash;
+import git4idea.GitRemoteBranch;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 缓存各仓库当前分支相对远程分支与目标分支的领先/落后状态
+ * 仅在仓库状态变化（GitRepositoryChangeListener）时增量重算，Action 与状态栏直接读取缓存
+ */
+@Service(Service.Level.PROJECT)
+public final class MergeStateService implements Disposable {
+
+    private final Project project;
+    /** 仓库根目录 → 状态 */
+    private final Map<String, RepositoryMergeState> states = new ConcurrentHashMap<>();
+    /** 已排队等待重算的仓库，同一仓库的连续变化只重算一次 */
+    private final Set<String> pendingRoots = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Quick Merge State", 1);
+    /** 项目中是否存在 Git 仓库，仓库映射变化时更新，菜单构建时直接读取 */
+    private volatile boolean hasRepositories;
+    /** 单仓库合并时使用的仓库（第一个 Git 根目录） */
+    private volatile String primaryRoot;
+
+    public MergeStateService(Project project) {
+        this.project = project;
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(GitRepository.GIT_REPO_CHANGE, this::refresh);
+        connection.subscribe(VcsRepositoryManager.VCS_REPOSITORY_MAPPING_UPDATED, this::refreshAll);
+        refreshAll();
+    }
+
+    public static MergeStateService getInstance(@NotNull Project project) {
+        return project.getService(MergeStateService.class);
+    }
+
+    /**
+     * 获取缓存的仓库状态，尚未计算完成时返回 null
+     */
+    public @Nullable RepositoryMergeState getState(@NotNull GitRepository repository) {
+        RepositoryMergeState state = states.get(repository.getRoot().getPath());
+        if (state == null || !state.matches(repository, MergeToDevSettings.getInstance().getTargetBranches())) {
+            // 缓存已过期（分支切换或目标分支配置变化），后台重算
+            refresh(repository);
+            return null;
+        }
+        return state;
+    }
+
+    /**
+     * 项目中是否存在 Git 仓库（缓存值，不访问仓库管理器）
+     */
+    public boolean hasRepositories() {
+        return hasRepositories;
+    }
+
+    /**
+     * 第一个仓库的缓存状态，不校验是否过期、不触发重算，供 Action 更新展示使用
+     */
+    public @Nullable RepositoryMergeState getPrimaryState() {
+        String root = primaryRoot;
+        return root == null ? null : states.get(root);
+    }
+
+    /**
+     * 当前分支是否确定与远程分支同步（缓存未就绪时返回 false）
+     */
+    public boolean isInSync(@NotNull GitRepository repository) {
+        RepositoryMergeState state = getState(repository);
+        return state != null && state.aheadOfOrigin == 0;
+    }
+
+    /**
+     * 注册状态变化监听，回调在后台线程执行
+     */
+    public void addListener(@NotNull Runnable listener, @NotNull Disposable parentDisposable) {
+        listeners.add(listener);
+        Disposer.register(parentDisposable, () -> listeners.remove(listener));
+    }
+
+    public void refreshAll() {
+        List<GitRepository> repositories = new ArrayList<>(GitUtil.getRepositories(project));
+        hasRepositories = !repositories.isEmpty();
+        primaryRoot = repositories.isEmpty() ? null : repositories.get(0).getRoot().getPath();
+        for (GitRepository repository : repositories) {
+            refresh(repository);
+        }
+    }
+
+    /**
+     * 排队重算指定仓库的状态
+     */
+    public void refresh(@NotNull GitRepository repository) {
+        String rootPath = repository.getRoot().getPath();
+        if (!pendingRoots.add(rootPath)) {
+            return;
+        }
+        executor.execute(() -> {
+            pendingRoots.remove(rootPath);
+            if (project.isDisposed()) {
+                return;
+            }
+            RepositoryMergeState previous = states.get(rootPath);
+            RepositoryMergeState current = compute(repository, previous);
+            if (current == null) {
+                states.remove(rootPath);
+            } else {
+                states.put(rootPath, current);
+            }
+            if (!Objects.equals(previous, current)) {
+                listeners.forEach(Runnable::run);
+            }
+        });
+    }
+
+    /**
+     * 计算仓库状态；引用哈希与上次相同时直接复用，不启动 git 进程
+     */
+    private @Nullable RepositoryMergeState compute(GitRepository repository, @Nullable RepositoryMergeState previous) {
+        String branch = repository.getCurrentBranchName();
+        if (branch == null) {
+            // 游离 HEAD 不参与合并
+            return null;
+        }
+
+        List<String> targets = new ArrayList<>(MergeToDevSettings.getInstance().getTargetBranches());
+        List<String> refs = new ArrayList<>();
+        refs.add("HEAD=" + repository.getCurrentRevision());
+        refs.add("origin/" + branch + "=" + remoteHash(repository, branch));
+        for (String target : targets) {
+            refs.add("origin/" + target + "=" + remoteHash(repository, target));
+        }
+        if (previous != null && previous.branch.equals(branch) && previous.refHashes.equals(refs)) {
+            return previous;
+        }
+
+        GitRefQueries queries = new GitRefQueries(project, repository.getRoot());
+        AheadBehind origin = queries.aheadBehind("origin/" + branch, branch);
+        Map<String, AheadBehind> targetStates = new LinkedHashMap<>();
+        for (String target : targets) {
+            if (!target.equals(branch)) {
+                targetStates.put(target, queries.aheadBehind("origin/" + target, branch));
+            }
+        }
+        return new RepositoryMergeState(branch, origin == null ? -1 : origin.ahead, targets, targetStates, refs);
+    }
+
+    /**
+     * 从仓库缓存的分支信息中读取 origin/分支 的提交哈希（不启动 git 进程）
+     */
+    static String remoteHash(GitRepository repository, String branch) {
+        GitRemoteBranch remoteBranch = repository.getBranches().findRemoteBranch("origin/" + branch);
+        Hash hash = remoteBranch == null ? null : repository.getBranches().getHash(remoteBranch);
+        return hash == null ? null : hash.asString();
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        listeners.clear();
+    }
+
+    /**
+     * 仓库状态快照
+     */
+    public static final class RepositoryMergeState {
+        public final String branch;
+        /** 本地分支领先 origin/分支 的提交数，-1 表示远程分支不存在 */
+        public final int aheadOfOrigin;
+        /** 目标分支 → 当前分支相对 origin/目标分支 的领先/落后数（远程分支不存在时为 null） */
+        public final Map<String, AheadBehind> targets;
+        /** 计算时配置的目标分支 */
+        private final List<String> targetBranches;
+        /** 计算时的 "引用=哈希"（HEAD 与相关远程分支），用于判断是否需要重算 */
+        private final List<String> refHashes;
+
+        RepositoryMergeState(String branch, int aheadOfOrigin, List<String> targetBranches,
+                             Map<String, AheadBehind> targets, List<String> refHashes) {
+            this.branch = branch;
+            this.aheadOfOrigin = aheadOfOrigin;
+            this.targetBranches = targetBranches;
+            this.targets = Collections.unmodifiableMap(targets);
+            this.refHashes = refHashes;
+        }
+
+        boolean matches(GitRepository repository, List<String> targetBranches) {
+            return branch.equals(repository.getCurrentBranchName())
+                    && refHashes.get(0).equals("HEAD=" + repository.getCurrentRevision())
+                    && this.targetBranches.equals(targetBranches);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RepositoryMergeState)) {
+                return false;
+            }
+            RepositoryMergeState that = (RepositoryMergeState) o;
+            return branch.equals(that.branch) && refHashes.equals(that.refHashes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(branch, refHashes);
+        }
+    }
+}
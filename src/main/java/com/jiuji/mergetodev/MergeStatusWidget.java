@@ -0,0 +1,115 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.StatusBar;
+import com.intellij.openapi.wm.StatusBarWidget;
+import com.intellij.util.Consumer;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 状态栏合并状态：显示当前分支相对目标分支的领先/落后提交数
+ * 数据全部来自 MergeStateService 缓存，绘制时不启动 git 进程
+ */
+public class MergeStatusWidget implements StatusBarWidget, StatusBarWidget.TextPresentation {
+
+    static final String ID = "com.jiuji.mergetodev.MergeStatusWidget";
+
+    private final Project project;
+    private StatusBar statusBar;
+
+    public MergeStatusWidget(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public @NotNull String ID() {
+        return ID;
+    }
+
+    @Override
+    public @Nullable WidgetPresentation getPresentation() {
+        return this;
+    }
+
+    @Override
+    public void install(@NotNull StatusBar statusBar) {
+        this.statusBar = statusBar;
+        MergeStateService.getInstance(project).addListener(() ->
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    if (this.statusBar != null) {
+                        this.statusBar.updateWidget(ID);
+                    }
+                }, project.getDisposed()), this);
+    }
+
+    @Override
+    public @NotNull String getText() {
+        GitRepository repository = firstRepository();
+        if (repository == null) {
+            return "";
+        }
+        MergeStateService.RepositoryMergeState state = MergeStateService.getInstance(project).getState(repository);
+        if (state == null || state.targets.isEmpty()) {
+            return "";
+        }
+
+        // 只显示主目标分支，其余在提示中展示
+        Map.Entry<String, AheadBehind> primary = state.targets.entrySet().iterator().next();
+        return "⇅ " + primary.getKey() + " " + formatAheadBehind(primary.getValue());
+    }
+
+    @Override
+    public @Nullable String getTooltipText() {
+        MergeStateService service = MergeStateService.getInstance(project);
+        StringBuilder sb = new StringBuilder("<html>");
+        for (GitRepository repository : GitUtil.getRepositories(project)) {
+            MergeStateService.RepositoryMergeState state = service.getState(repository);
+            if (state == null) {
+                continue;
+            }
+            sb.append("<b>").append(repository.getRoot().getName()).append("</b> ").append(state.branch);
+            sb.append(state.aheadOfOrigin < 0 ? "（未推送到远程）" : "（待推送 " + state.aheadOfOrigin + "）");
+            sb.append("<br/>");
+            state.targets.forEach((target, aheadBehind) -> sb.append("&nbsp;&nbsp;→ ").append(target).append(" ")
+                    .append(formatAheadBehind(aheadBehind)).append("<br/>"));
+        }
+        sb.append("领先数为待合并到目标分支的提交，落后数为目标分支上的新提交</html>");
+        return sb.toString();
+    }
+
+    @Override
+    public float getAlignment() {
+        return Component.LEFT_ALIGNMENT;
+    }
+
+    @Override
+    public @Nullable Consumer<MouseEvent> getClickConsumer() {
+        return null;
+    }
+
+    @Override
+    public void dispose() {
+        statusBar = null;
+    }
+
+    private @Nullable GitRepository firstRepository() {
+        Collection<GitRepository> repositories = GitUtil.getRepositories(project);
+        return repositories.isEmpty() ? null : repositories.iterator().next();
+    }
+
+    private static String formatAheadBehind(@Nullable AheadBehind aheadBehind) {
+        if (aheadBehind == null) {
+            return "?";
+        }
+        return "↑" + aheadBehind.ahead + " ↓" + aheadBehind.behind;
+    }
+}
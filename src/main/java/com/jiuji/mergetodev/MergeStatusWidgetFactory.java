@@ -0,0 +1,33 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.StatusBarWidget;
+import com.intellij.openapi.wm.StatusBarWidgetFactory;
+import git4idea.GitUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 状态栏合并状态组件工厂
+ */
+public class MergeStatusWidgetFactory implements StatusBarWidgetFactory {
+
+    @Override
+    public @NotNull String getId() {
+        return MergeStatusWidget.ID;
+    }
+
+    @Override
+    public @NotNull String getDisplayName() {
+        return "Quick Merge 状态";
+    }
+
+    @Override
+    public boolean isAvailable(@NotNull Project project) {
+        return !GitUtil.getRepositories(project).isEmpty();
+    }
+
+    @Override
+    public @NotNull StatusBarWidget createWidget(@NotNull Project project) {
+        return new MergeStatusWidget(project);
+    }
+}
@@ -1,5 +1,7 @@
 package com.jiuji.mergetodev;
 
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.progress.ProgressIndicator;
@@ -7,18 +9,30 @@ import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import git4idea.GitUtil;
 import git4idea.branch.GitBranchUtil;
 import git4idea.repo.GitRepository;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * 一键将当前分支合并到目标分支的 Action
  */
 public class MergeToDevAction extends AnAction {
 
+    /** 冲突提示中最多列出的文件数 */
+    private static final int MAX_LISTED_CONFLICTS = 10;
+
     @Override
     public void actionPerformed(@NotNull AnActionEvent e) {
         Project project = e.getProject();
@@ -32,44 +46,123 @@ public class MergeToDevAction extends AnAction {
             return;
         }
 
-        GitRepository repository = repositories.iterator().next();
-        String currentBranch = GitBranchUtil.getBranchNameOrRev(repository);
-
         // 从配置获取目标分支
-        String targetBranch = MergeToDevSettings.getInstance().getTargetBranch();
+        MergeToDevSettings settings = MergeToDevSettings.getInstance();
+        List<String> targetBranches = settings.getTargetBranches();
+        String targetDisplay = String.join(", ", targetBranches);
+        boolean multiRoot = settings.isMergeAllRepositories() && repositories.size() > 1;
+
+        // 创建实时日志控制台
+        MergeLogConsole console = new MergeLogConsole(project);
 
-        if (targetBranch.equals(currentBranch)) {
-            Messages.showWarningDialog(project, "当前已在 " + targetBranch + " 分支，无需合并", "提示");
+        List<RepositoryState> states = new ArrayList<>();
+        MergeJournalService journals = MergeJournalService.getInstance(project);
+        for (GitRepository repository : multiRoot ? repositories : List.of(repositories.iterator().next())) {
+            // 上次合并中断在目标分支上时，以发起合并的原分支继续（流水线开始时先切回）
+            String originalBranch = journals.strandedOriginalBranch(repository);
+            String currentBranch = originalBranch != null ? originalBranch : GitBranchUtil.getBranchNameOrRev(repository);
+            // 当前分支本身是目标分支之一时，只合并到其余目标分支
+            List<String> targets = targetBranches.stream()
+                    .filter(branch -> !branch.equals(currentBranch))
+                    .collect(Collectors.toList());
+            if (targets.isEmpty()) {
+                if (!multiRoot) {
+                    Messages.showWarningDialog(project, "当前已在 " + currentBranch + " 分支，无需合并", "提示");
+                    return;
+                }
+                continue;
+            }
+            MergeLogConsole repositoryConsole = multiRoot ? console.withPrefix("[" + repository.getRoot().getName() + "] ") : console;
+            RepositoryState state = new RepositoryState(repository, currentBranch, targets,
+                    new GitOperationHelper(project, repository, repositoryConsole), repositoryConsole);
+            state.resumable = journals.hasPending(repository, currentBranch);
+            states.add(state);
+        }
+        if (states.isEmpty()) {
+            Messages.showWarningDialog(project, "所有仓库均已在 " + targetDisplay + " 分支，无需合并", "提示");
             return;
         }
 
-        // 创建实时日志控制台
-        MergeLogConsole console = new MergeLogConsole(project);
-        GitOperationHelper helper = new GitOperationHelper(project, repository, console);
-
-        // 检查未提交更改
-        boolean hasUncommittedChanges = helper.hasUncommittedChanges();
-        
-        // fetch 当前分支以检查是否有本地领先的提交
-        helper.fetchSilent(currentBranch);
-        int aheadCount = helper.getAheadCount(currentBranch);
-        
+        // 缓存显示所有仓库均已同步且无未提交更改时立即提示，无需启动预检查；仓库有合并正在执行时工作区不可信，仍需预检查
+        MergeStateService stateService = MergeStateService.getInstance(project);
+        MergeQueueService queue = MergeQueueService.getInstance(project);
+        if (states.stream().allMatch(state -> !queue.isBusy(state.repository)
+                && stateService.isInSync(state.repository) && !state.helper.hasUncommittedChanges())) {
+            confirmAndMerge(project, console, states, targetDisplay, multiRoot);
+            return;
+        }
+
+        // 预检查（变更检测、fetch、rev-list）在可取消的后台任务中执行，结束后回到 EDT 弹出提交对话框
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Quick Merge 预检查", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setIndeterminate(true);
+                indicator.setText("正在检查本地更改并获取远程分支...");
+                // 同一仓库的合并或其他预检查结束后再检查，避免看到合并过程中的工作区
+                forEachConcurrently(states, indicator,
+                        state -> queue.runPreflight(state.repository, indicator, () -> preflight(state, indicator)));
+            }
+
+            @Override
+            public void onSuccess() {
+                confirmAndMerge(project, console, states, targetDisplay, multiRoot);
+            }
+        });
+    }
+
+    /**
+     * 单个仓库的预检查
+     */
+    private static void preflight(RepositoryState state, ProgressIndicator indicator) {
+        // 检查未提交更改，fetch 当前分支以检查是否有本地领先的提交；批量模式下同时获取所有目标分支，合并阶段不再 fetch
+        state.preflight = MergeFlow.preflight(state.helper, state.currentBranch, state.targetBranches,
+                MergeToDevSettings.getInstance().isBatchedNetwork(), indicator::checkCanceled);
+
+        // 基于刚获取的远程分支预测冲突（结果按提交哈希缓存，通常已由后台算好）
+        ConflictForecastService forecast = ConflictForecastService.getInstance(state.repository.getProject());
+        for (String target : state.targetBranches) {
+            indicator.checkCanceled();
+            forecast.forecastNow(state.repository, target);
+        }
+    }
+
+    /**
+     * 根据预检查结果确认提交信息并启动合并（EDT）
+     */
+    private void confirmAndMerge(Project project, MergeLogConsole console, List<RepositoryState> states,
+                                 String targetDisplay, boolean multiRoot) {
+        List<RepositoryState> pending = states.stream()
+                .filter(RepositoryState::needsMerge)
+                .collect(Collectors.toList());
+
         // 如果没有未提交更改且没有领先远程的提交，提示无需操作
-        if (!hasUncommittedChanges && aheadCount == 0) {
-            Messages.showInfoMessage(project, 
-                "当前分支 " + currentBranch + " 与远程分支完全同步，没有需要合并的更改。", 
-                "无需操作");
+        if (pending.isEmpty()) {
+            String message = multiRoot
+                    ? "所有仓库的当前分支均与远程分支完全同步，没有需要合并的更改。"
+                    : "当前分支 " + states.get(0).currentBranch + " 与远程分支完全同步，没有需要合并的更改。";
+            Messages.showInfoMessage(project, message, "无需操作");
             return;
         }
 
+        if (!confirmPredictedConflicts(project, pending, multiRoot)) {
+            return;
+        }
+
+        List<RepositoryState> uncommitted = pending.stream()
+                .filter(state -> state.preflight.hasUncommittedChanges)
+                .collect(Collectors.toList());
+
         String commitMsg = null;
-        if (hasUncommittedChanges) {
+        if (!uncommitted.isEmpty()) {
+            String prompt = multiRoot
+                    ? "检测到未提交的更改（" + uncommitted.stream().map(RepositoryState::getName).collect(Collectors.joining(", ")) + "），请输入提交信息："
+                    : "检测到未提交的更改，请输入提交信息：";
             commitMsg = Messages.showInputDialog(
                     project,
-                    "检测到未提交的更改，请输入提交信息：",
+                    prompt,
                     "提交更改",
                     Messages.getQuestionIcon(),
-                    "auto commit before merge to " + targetBranch,
+                    "auto commit before merge to " + targetDisplay,
                     null
             );
 
@@ -78,103 +171,229 @@ public class MergeToDevAction extends AnAction {
             }
 
             if (commitMsg.trim().isEmpty()) {
-                commitMsg = "auto commit before merge to " + targetBranch;
+                commitMsg = "auto commit before merge to " + targetDisplay;
             }
         }
 
         final String finalCommitMsg = commitMsg;
-        final String finalTargetBranch = targetBranch;
-        final boolean needPushCurrentBranch = hasUncommittedChanges || aheadCount > 0 || aheadCount == -1;
 
-        // 后台执行
-        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Merge to " + targetBranch, false) {
+        // 后台执行；取消时终止正在运行的 git 进程并切回原分支
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Merge to " + targetDisplay, true) {
             @Override
             public void run(@NotNull ProgressIndicator indicator) {
-                // 初始化控制台
+                // 初始化控制台，日志在视图就绪前排队，无需等待
                 console.init();
-                console.waitForInit();
-
-                console.printInfo("当前分支: " + currentBranch);
-                console.printInfo("目标分支: " + finalTargetBranch);
-                console.printInfo("");
-
-                // 如果有未提交更改，先提交
-                if (finalCommitMsg != null) {
-                    indicator.setText("正在提交更改...");
-                    if (!helper.commitAll(finalCommitMsg)) {
-                        console.printComplete(false);
-                        return;
-                    }
-                    console.printInfo("");
+
+                // 同一仓库的合并经队列串行执行，连续触发的请求合批处理
+                MergeQueueService queue = MergeQueueService.getInstance(project);
+                if (!multiRoot) {
+                    RepositoryState state = pending.get(0);
+                    console.printComplete(queue.run(state.createPipeline(finalCommitMsg, false), indicator));
+                    printLogLinks(project, console, pending, false);
+                    return;
                 }
 
-                // 推送到当前分支的远程（无论是否有新提交都推送）
-                if (needPushCurrentBranch) {
-                    indicator.setText("正在推送到远程 " + currentBranch + " 分支...");
-                    if (!helper.push(currentBranch)) {
-                        console.printComplete(false);
-                        return;
+                // 多仓库并行合并，总耗时取决于最慢的仓库
+                AtomicInteger finished = new AtomicInteger();
+                indicator.setIndeterminate(false);
+                indicator.setText("正在合并 " + pending.size() + " 个仓库...");
+                forEachConcurrently(pending, indicator, state -> {
+                    long start = System.currentTimeMillis();
+                    try {
+                        MergePipeline pipeline = state.createPipeline(finalCommitMsg, true);
+                        state.success = queue.run(pipeline, indicator);
+                        state.pushAttempts = pipeline.getPushAttempts();
+                    } finally {
+                        state.durationMs = System.currentTimeMillis() - start;
+                        indicator.setFraction((double) finished.incrementAndGet() / pending.size());
+                        indicator.setText("正在合并 " + pending.size() + " 个仓库（已完成 " + finished.get() + "）...");
                     }
-                    console.printInfo("");
-                }
+                });
 
-                // Step 1: fetch 目标分支
-                indicator.setText("正在获取远程分支...");
-                if (!helper.fetch(finalTargetBranch)) {
-                    console.printComplete(false);
-                    return;
-                }
-                console.printInfo("");
+                printSummary(console, states, pending);
+                console.printComplete(pending.stream().allMatch(state -> state.success));
+                printLogLinks(project, console, pending, true);
+            }
 
-                // Step 2: checkout target
-                indicator.setText("正在切换分支...");
-                if (!helper.checkout(finalTargetBranch)) {
-                    console.printComplete(false);
-                    return;
-                }
-                console.printInfo("");
+            @Override
+            public void onCancel() {
+                console.printCancelled();
+                printLogLinks(project, console, pending, multiRoot);
+            }
+        });
+    }
 
-                // Step 3: pull
-                indicator.setText("正在拉取最新代码...");
-                if (!helper.pull(finalTargetBranch)) {
-                    console.printComplete(false);
-                    helper.checkout(currentBranch);
-                    return;
+    /**
+     * 缓存中存在预计冲突时提示冲突文件，由用户决定是否继续
+     * @return 是否继续合并
+     */
+    private static boolean confirmPredictedConflicts(Project project, List<RepositoryState> pending, boolean multiRoot) {
+        ConflictForecastService forecast = ConflictForecastService.getInstance(project);
+        List<String> lines = new ArrayList<>();
+        for (RepositoryState state : pending) {
+            for (String target : state.targetBranches) {
+                TreeMergeResult result = forecast.getForecast(state.repository, target);
+                if (result == null || result.status != TreeMergeResult.Status.CONFLICT) {
+                    continue;
                 }
-                console.printInfo("");
+                List<String> files = result.conflicts;
+                String fileList = String.join("\n    ", files.subList(0, Math.min(files.size(), MAX_LISTED_CONFLICTS)))
+                        + (files.size() > MAX_LISTED_CONFLICTS ? "\n    ... 共 " + files.size() + " 个文件" : "");
+                lines.add((multiRoot ? "[" + state.getName() + "] " : "") + state.currentBranch + " → " + target + "：\n    " + fileList);
+            }
+        }
+        if (lines.isEmpty()) {
+            return true;
+        }
+        return Messages.showYesNoDialog(project,
+                "试合并（基于已提交的内容）预计以下分支会产生冲突：\n\n" + String.join("\n", lines) + "\n\n仍要继续合并吗？",
+                "预计冲突", "继续合并", "取消", Messages.getWarningIcon()) == Messages.YES;
+    }
 
-                // Step 4: merge
-                indicator.setText("正在合并分支...");
-                if (!helper.merge(currentBranch)) {
-                    console.printComplete(false);
-                    return;
-                }
-                console.printInfo("");
+    /**
+     * 打印多仓库合并汇总
+     */
+    private static void printSummary(MergeLogConsole console, List<RepositoryState> states, List<RepositoryState> pending) {
+        console.printInfo("========== 多仓库合并汇总 ==========");
+        for (RepositoryState state : states) {
+            if (!pending.contains(state)) {
+                console.printInfo("- " + state.getName() + "：无需合并");
+            } else if (state.success) {
+                console.printSuccess(state.getName() + "：成功（" + state.durationMs + " ms"
+                        + (state.pushAttempts > 1 ? "，推送尝试 " + state.pushAttempts + " 次" : "") + "）");
+            } else {
+                console.printError(state.getName() + "：失败（" + state.durationMs + " ms）");
+            }
+        }
+    }
 
-                // Step 5: push
-                indicator.setText("正在推送到远程...");
-                if (!helper.push(finalTargetBranch)) {
-                    console.printComplete(false);
-                    helper.checkout(currentBranch);
-                    return;
-                }
-                console.printInfo("");
+    /**
+     * 打印查看各仓库 git 命令详情（{@link GitLogDialog}）的链接
+     */
+    private static void printLogLinks(Project project, MergeLogConsole console, List<RepositoryState> pending,
+                                      boolean multiRoot) {
+        for (RepositoryState state : pending) {
+            String title = multiRoot ? state.getName() + " 的 git 命令详情" : "git 命令详情";
+            GitOperationLog log = state.helper.getOperationLog();
+            console.printLink("查看" + title, () -> new GitLogDialog(project, title, log).show());
+        }
+    }
 
-                // Step 6: checkout back
-                indicator.setText("正在切回原分支...");
-                helper.checkout(currentBranch);
-                console.printInfo("");
+    /**
+     * 在有界线程池中并行处理各仓库，全部完成后返回
+     */
+    private static void forEachConcurrently(List<RepositoryState> states, ProgressIndicator indicator,
+                                            Consumer<RepositoryState> work) {
+        if (states.size() == 1) {
+            work.accept(states.get(0));
+            return;
+        }
 
-                // 完成
-                console.printComplete(true);
+        int parallelism = Math.min(states.size(), MergeToDevSettings.getInstance().getMaxParallelRepositories());
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Quick Merge", parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (RepositoryState state : states) {
+                // 每个仓库使用独立的子进度，父进度取消时一并取消
+                ProgressIndicator child = new SensitiveProgressWrapper(indicator);
+                futures.add(executor.submit(() ->
+                        ProgressManager.getInstance().executeProcessUnderProgress(() -> work.accept(state), child)));
             }
-        });
+            // 取消时等待所有仓库完成恢复（切回原分支）后再抛出
+            RuntimeException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause()
+                                : new IllegalStateException(e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
     }
 
+    /**
+     * 只读取 MergeStateService 由仓库监听维护的缓存，右键菜单构建时不遍历仓库
+     */
     @Override
     public void update(@NotNull AnActionEvent e) {
         Project project = e.getProject();
-        boolean enabled = project != null && !GitUtil.getRepositories(project).isEmpty();
+        if (project == null || project.isDisposed()) {
+            e.getPresentation().setEnabledAndVisible(false);
+            return;
+        }
+        MergeStateService stateService = MergeStateService.getInstance(project);
+        boolean enabled = stateService.hasRepositories();
         e.getPresentation().setEnabledAndVisible(enabled);
+        if (!enabled) {
+            return;
+        }
+
+        MergeStateService.RepositoryMergeState state = stateService.getPrimaryState();
+        List<String> targets = MergeToDevSettings.getInstance().getTargetBranches();
+        if (state == null) {
+            e.getPresentation().setDescription("一键将当前分支合并到 " + String.join(", ", targets));
+        } else if (targets.size() == 1 && targets.contains(state.branch)) {
+            e.getPresentation().setDescription("当前已在目标分支 " + state.branch);
+        } else {
+            e.getPresentation().setDescription("将 " + state.branch + " 合并到 " + String.join(", ", targets)
+                    + (state.aheadOfOrigin > 0 ? "（" + state.aheadOfOrigin + " 个提交未推送）" : ""));
+        }
+    }
+
+    /**
+     * 单个仓库的预检查状态与合并结果
+     */
+    private static class RepositoryState {
+        final GitRepository repository;
+        final String currentBranch;
+        final List<String> targetBranches;
+        final GitOperationHelper helper;
+        final MergeLogConsole console;
+        /** 预检查结果；缓存显示已同步而跳过预检查时为 IN_SYNC */
+        volatile MergeFlow.Preflight preflight = MergeFlow.Preflight.IN_SYNC;
+        volatile boolean success;
+        volatile long durationMs;
+        volatile int pushAttempts;
+        /** 上次从该分支发起的合并未完成，即使已同步也需要续跑 */
+        boolean resumable;
+
+        RepositoryState(GitRepository repository, String currentBranch, List<String> targetBranches,
+                        GitOperationHelper helper, MergeLogConsole console) {
+            this.repository = repository;
+            this.currentBranch = currentBranch;
+            this.targetBranches = targetBranches;
+            this.helper = helper;
+            this.console = console;
+        }
+
+        String getName() {
+            return repository.getRoot().getName();
+        }
+
+        boolean needsMerge() {
+            return preflight.hasUncommittedChanges || preflight.aheadCount != 0 || resumable;
+        }
+
+        MergePipeline createPipeline(String commitMessage, boolean multiRoot) {
+            return new MergePipeline(repository, helper, console, currentBranch, targetBranches,
+                    preflight.hasUncommittedChanges ? commitMessage : null, preflight.needsPush(), preflight.targetsFetched,
+                    multiRoot ? "[" + getName() + "] " : null);
+        }
     }
 }
@@ -7,6 +7,9 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 插件设置界面
@@ -14,6 +17,21 @@ import java.awt.*;
 public class MergeToDevConfigurable implements Configurable {
 
     private JTextField targetBranchField;
+    private JCheckBox checkoutFreeMergeBox;
+    private JCheckBox mergeAllRepositoriesBox;
+    private JCheckBox batchedNetworkBox;
+    private JCheckBox stageKnownChangesOnlyBox;
+    private JSpinner maxParallelSpinner;
+    private JCheckBox prefetchEnabledBox;
+    private JSpinner prefetchIntervalSpinner;
+    private JSpinner pushRetryLimitSpinner;
+    private JCheckBox conflictForecastBox;
+    private JCheckBox fetchNoTagsBox;
+    private JCheckBox fetchExplicitRefspecBox;
+    private JCheckBox fetchLimitNegotiationBox;
+    private JTextField fetchFilterField;
+    private JSpinner networkTimeoutSpinner;
+    private JSpinner localTimeoutSpinner;
     private final MergeToDevSettings settings = MergeToDevSettings.getInstance();
 
     @Override
@@ -39,7 +57,7 @@ public class MergeToDevConfigurable implements Configurable {
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
         targetBranchField = new JTextField(20);
-        targetBranchField.setText(settings.getTargetBranch());
+        targetBranchField.setText(String.join(", ", settings.getTargetBranches()));
         panel.add(targetBranchField, gbc);
 
         // 说明文字
@@ -47,11 +65,144 @@ public class MergeToDevConfigurable implements Configurable {
         gbc.gridy = 1;
         gbc.gridwidth = 2;
         gbc.fill = GridBagConstraints.HORIZONTAL;
-        JLabel hintLabel = new JLabel("<html><font color='gray'>设置合并操作的目标分支名称，默认为 dev</font></html>");
+        JLabel hintLabel = new JLabel("<html><font color='gray'>设置合并操作的目标分支名称，默认为 dev；多个分支用逗号分隔，如 dev, test, pre</font></html>");
         panel.add(hintLabel, gbc);
 
-        // 占位，让内容靠上
+        // 免检出合并
         gbc.gridy = 2;
+        checkoutFreeMergeBox = new JCheckBox("免检出合并（在对象库中完成合并，不切换工作区分支）");
+        checkoutFreeMergeBox.setSelected(settings.isCheckoutFreeMerge());
+        panel.add(checkoutFreeMergeBox, gbc);
+
+        gbc.gridy = 3;
+        JLabel checkoutFreeHintLabel = new JLabel("<html><font color='gray'>需要 git 2.38+，检测到冲突时自动回退到切换分支的常规合并流程</font></html>");
+        panel.add(checkoutFreeHintLabel, gbc);
+
+        // 合并网络请求
+        gbc.gridy = 4;
+        batchedNetworkBox = new JCheckBox("合并网络请求（一次 fetch 所有分支，一次 --atomic 推送所有分支）");
+        batchedNetworkBox.setSelected(settings.isBatchedNetwork());
+        panel.add(batchedNetworkBox, gbc);
+
+        // 按路径暂存
+        gbc.gridy = 5;
+        stageKnownChangesOnlyBox = new JCheckBox("提交前只暂存 IDE 已知的变更文件（代替 git add .）");
+        stageKnownChangesOnlyBox.setSelected(settings.isStageKnownChangesOnly());
+        panel.add(stageKnownChangesOnlyBox, gbc);
+
+        // 多仓库并行合并
+        gbc.gridy = 6;
+        mergeAllRepositoriesBox = new JCheckBox("合并项目中的所有 Git 仓库（并行执行）");
+        mergeAllRepositoriesBox.setSelected(settings.isMergeAllRepositories());
+        panel.add(mergeAllRepositoriesBox, gbc);
+
+        gbc.gridy = 7;
+        gbc.gridwidth = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        panel.add(new JLabel("最大并发仓库数:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        maxParallelSpinner = new JSpinner(new SpinnerNumberModel(settings.getMaxParallelRepositories(), 1, 32, 1));
+        panel.add(maxParallelSpinner, gbc);
+
+        // 后台预取目标分支
+        gbc.gridx = 0;
+        gbc.gridy = 8;
+        gbc.gridwidth = 2;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        prefetchEnabledBox = new JCheckBox("后台定期预取目标分支（省电模式、索引中或正在输入时跳过）");
+        prefetchEnabledBox.setSelected(settings.isPrefetchEnabled());
+        panel.add(prefetchEnabledBox, gbc);
+
+        gbc.gridy = 9;
+        gbc.gridwidth = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        panel.add(new JLabel("预取间隔（分钟）:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        prefetchIntervalSpinner = new JSpinner(new SpinnerNumberModel(settings.getPrefetchIntervalMinutes(), 1, 240, 1));
+        panel.add(prefetchIntervalSpinner, gbc);
+
+        // 推送竞争重试次数
+        gbc.gridx = 0;
+        gbc.gridy = 10;
+        gbc.weightx = 0;
+        panel.add(new JLabel("推送被抢先时重试次数:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        pushRetryLimitSpinner = new JSpinner(new SpinnerNumberModel(settings.getPushRetryLimit(), 0, 10, 1));
+        panel.add(pushRetryLimitSpinner, gbc);
+
+        // 冲突预测
+        gbc.gridx = 0;
+        gbc.gridy = 11;
+        gbc.gridwidth = 2;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        conflictForecastBox = new JCheckBox("后台试合并目标分支，合并前提示预计冲突的文件");
+        conflictForecastBox.setSelected(settings.isConflictForecast());
+        panel.add(conflictForecastBox, gbc);
+
+        // fetch 策略
+        gbc.gridy = 12;
+        fetchNoTagsBox = new JCheckBox("fetch 时不获取标签（--no-tags）");
+        fetchNoTagsBox.setSelected(settings.isFetchNoTags());
+        panel.add(fetchNoTagsBox, gbc);
+
+        gbc.gridy = 13;
+        fetchExplicitRefspecBox = new JCheckBox("fetch 使用显式 refspec，只更新 origin/分支");
+        fetchExplicitRefspecBox.setSelected(settings.isFetchExplicitRefspec());
+        panel.add(fetchExplicitRefspecBox, gbc);
+
+        gbc.gridy = 14;
+        fetchLimitNegotiationBox = new JCheckBox("fetch 协商只使用相关分支（--negotiation-tip），适合分支很多的远程仓库");
+        fetchLimitNegotiationBox.setSelected(settings.isFetchLimitNegotiation());
+        panel.add(fetchLimitNegotiationBox, gbc);
+
+        gbc.gridy = 15;
+        gbc.gridwidth = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        panel.add(new JLabel("部分克隆过滤器:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        fetchFilterField = new JTextField(20);
+        fetchFilterField.setText(settings.getFetchFilter());
+        fetchFilterField.setToolTipText("如 blob:none，留空表示不过滤；首次使用会将仓库转为部分克隆，缺少的文件内容在需要时按需下载");
+        panel.add(fetchFilterField, gbc);
+
+        // 单步超时
+        gbc.gridx = 0;
+        gbc.gridy = 16;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        panel.add(new JLabel("fetch/push 超时（秒，0 不限）:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        networkTimeoutSpinner = new JSpinner(new SpinnerNumberModel(settings.getNetworkStepTimeoutSeconds(), 0, 3600, 10));
+        panel.add(networkTimeoutSpinner, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 17;
+        gbc.weightx = 0;
+        panel.add(new JLabel("本地步骤超时（秒，0 不限）:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        localTimeoutSpinner = new JSpinner(new SpinnerNumberModel(settings.getLocalStepTimeoutSeconds(), 0, 3600, 10));
+        panel.add(localTimeoutSpinner, gbc);
+
+        // 占位，让内容靠上
+        gbc.gridx = 0;
+        gbc.gridy = 18;
+        gbc.gridwidth = 2;
         gbc.weighty = 1.0;
         gbc.fill = GridBagConstraints.BOTH;
         panel.add(new JPanel(), gbc);
@@ -61,20 +212,76 @@ public class MergeToDevConfigurable implements Configurable {
 
     @Override
     public boolean isModified() {
-        return !settings.getTargetBranch().equals(targetBranchField.getText().trim());
+        return !settings.getTargetBranches().equals(parseBranches(targetBranchField.getText()))
+                || settings.isCheckoutFreeMerge() != checkoutFreeMergeBox.isSelected()
+                || settings.isBatchedNetwork() != batchedNetworkBox.isSelected()
+                || settings.isStageKnownChangesOnly() != stageKnownChangesOnlyBox.isSelected()
+                || settings.isMergeAllRepositories() != mergeAllRepositoriesBox.isSelected()
+                || settings.getMaxParallelRepositories() != (Integer) maxParallelSpinner.getValue()
+                || settings.isPrefetchEnabled() != prefetchEnabledBox.isSelected()
+                || settings.getPrefetchIntervalMinutes() != (Integer) prefetchIntervalSpinner.getValue()
+                || settings.getPushRetryLimit() != (Integer) pushRetryLimitSpinner.getValue()
+                || settings.isConflictForecast() != conflictForecastBox.isSelected()
+                || settings.isFetchNoTags() != fetchNoTagsBox.isSelected()
+                || settings.isFetchExplicitRefspec() != fetchExplicitRefspecBox.isSelected()
+                || settings.isFetchLimitNegotiation() != fetchLimitNegotiationBox.isSelected()
+                || !settings.getFetchFilter().equals(fetchFilterField.getText().trim())
+                || settings.getNetworkStepTimeoutSeconds() != (Integer) networkTimeoutSpinner.getValue()
+                || settings.getLocalStepTimeoutSeconds() != (Integer) localTimeoutSpinner.getValue();
     }
 
     @Override
     public void apply() throws ConfigurationException {
-        String branch = targetBranchField.getText().trim();
-        if (branch.isEmpty()) {
+        List<String> branches = parseBranches(targetBranchField.getText());
+        if (branches.isEmpty()) {
             throw new ConfigurationException("目标分支不能为空");
         }
-        settings.setTargetBranch(branch);
+        settings.setTargetBranches(branches);
+        settings.setCheckoutFreeMerge(checkoutFreeMergeBox.isSelected());
+        settings.setBatchedNetwork(batchedNetworkBox.isSelected());
+        settings.setStageKnownChangesOnly(stageKnownChangesOnlyBox.isSelected());
+        settings.setMergeAllRepositories(mergeAllRepositoriesBox.isSelected());
+        settings.setMaxParallelRepositories((Integer) maxParallelSpinner.getValue());
+        settings.setPrefetchEnabled(prefetchEnabledBox.isSelected());
+        settings.setPrefetchIntervalMinutes((Integer) prefetchIntervalSpinner.getValue());
+        settings.setPushRetryLimit((Integer) pushRetryLimitSpinner.getValue());
+        settings.setConflictForecast(conflictForecastBox.isSelected());
+        settings.setFetchNoTags(fetchNoTagsBox.isSelected());
+        settings.setFetchExplicitRefspec(fetchExplicitRefspecBox.isSelected());
+        settings.setFetchLimitNegotiation(fetchLimitNegotiationBox.isSelected());
+        settings.setFetchFilter(fetchFilterField.getText().trim());
+        settings.setNetworkStepTimeoutSeconds((Integer) networkTimeoutSpinner.getValue());
+        settings.setLocalStepTimeoutSeconds((Integer) localTimeoutSpinner.getValue());
     }
 
     @Override
     public void reset() {
-        targetBranchField.setText(settings.getTargetBranch());
+        targetBranchField.setText(String.join(", ", settings.getTargetBranches()));
+        checkoutFreeMergeBox.setSelected(settings.isCheckoutFreeMerge());
+        batchedNetworkBox.setSelected(settings.isBatchedNetwork());
+        stageKnownChangesOnlyBox.setSelected(settings.isStageKnownChangesOnly());
+        mergeAllRepositoriesBox.setSelected(settings.isMergeAllRepositories());
+        maxParallelSpinner.setValue(settings.getMaxParallelRepositories());
+        prefetchEnabledBox.setSelected(settings.isPrefetchEnabled());
+        prefetchIntervalSpinner.setValue(settings.getPrefetchIntervalMinutes());
+        pushRetryLimitSpinner.setValue(settings.getPushRetryLimit());
+        conflictForecastBox.setSelected(settings.isConflictForecast());
+        fetchNoTagsBox.setSelected(settings.isFetchNoTags());
+        fetchExplicitRefspecBox.setSelected(settings.isFetchExplicitRefspec());
+        fetchLimitNegotiationBox.setSelected(settings.isFetchLimitNegotiation());
+        fetchFilterField.setText(settings.getFetchFilter());
+        networkTimeoutSpinner.setValue(settings.getNetworkStepTimeoutSeconds());
+        localTimeoutSpinner.setValue(settings.getLocalStepTimeoutSeconds());
+    }
+
+    /**
+     * 解析逗号分隔的分支列表，去除空白与重复项
+     */
+    private static List<String> parseBranches(String text) {
+        return Arrays.stream(text.split("[,，\\s]+"))
+                .map(String::trim)
+                .filter(branch -> !branch.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
     }
 }
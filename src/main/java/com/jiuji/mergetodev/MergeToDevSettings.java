@@ -8,6 +8,10 @@ import com.intellij.openapi.components.Storage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * 插件配置持久化服务
  */
@@ -34,18 +38,189 @@ public final class MergeToDevSettings implements PersistentStateComponent<MergeT
         myState = state;
     }
 
+    /**
+     * 主目标分支（目标分支列表中的第一个）
+     */
     public String getTargetBranch() {
-        return myState.targetBranch;
+        return getTargetBranches().get(0);
     }
 
     public void setTargetBranch(String targetBranch) {
-        myState.targetBranch = targetBranch;
+        setTargetBranches(List.of(targetBranch));
+    }
+
+    /**
+     * 目标分支列表，兼容旧版本只配置了 targetBranch 的情况
+     */
+    public List<String> getTargetBranches() {
+        if (myState.targetBranches == null || myState.targetBranches.isEmpty()) {
+            return List.of(myState.targetBranch);
+        }
+        return Collections.unmodifiableList(myState.targetBranches);
+    }
+
+    public void setTargetBranches(List<String> targetBranches) {
+        myState.targetBranches = new ArrayList<>(targetBranches);
+        myState.targetBranch = targetBranches.get(0);
+    }
+
+    public boolean isCheckoutFreeMerge() {
+        return myState.checkoutFreeMerge;
+    }
+
+    public void setCheckoutFreeMerge(boolean checkoutFreeMerge) {
+        myState.checkoutFreeMerge = checkoutFreeMerge;
+    }
+
+    public boolean isMergeAllRepositories() {
+        return myState.mergeAllRepositories;
+    }
+
+    public void setMergeAllRepositories(boolean mergeAllRepositories) {
+        myState.mergeAllRepositories = mergeAllRepositories;
+    }
+
+    public int getMaxParallelRepositories() {
+        return Math.max(1, myState.maxParallelRepositories);
+    }
+
+    public void setMaxParallelRepositories(int maxParallelRepositories) {
+        myState.maxParallelRepositories = maxParallelRepositories;
+    }
+
+    public boolean isBatchedNetwork() {
+        return myState.batchedNetwork;
+    }
+
+    public void setBatchedNetwork(boolean batchedNetwork) {
+        myState.batchedNetwork = batchedNetwork;
+    }
+
+    public boolean isStageKnownChangesOnly() {
+        return myState.stageKnownChangesOnly;
+    }
+
+    public void setStageKnownChangesOnly(boolean stageKnownChangesOnly) {
+        myState.stageKnownChangesOnly = stageKnownChangesOnly;
+    }
+
+    public boolean isPrefetchEnabled() {
+        return myState.prefetchEnabled;
+    }
+
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        myState.prefetchEnabled = prefetchEnabled;
+    }
+
+    public int getPrefetchIntervalMinutes() {
+        return Math.max(1, myState.prefetchIntervalMinutes);
+    }
+
+    public void setPrefetchIntervalMinutes(int prefetchIntervalMinutes) {
+        myState.prefetchIntervalMinutes = prefetchIntervalMinutes;
+    }
+
+    public int getPushRetryLimit() {
+        return Math.max(0, myState.pushRetryLimit);
+    }
+
+    public void setPushRetryLimit(int pushRetryLimit) {
+        myState.pushRetryLimit = pushRetryLimit;
+    }
+
+    public boolean isConflictForecast() {
+        return myState.conflictForecast;
+    }
+
+    public void setConflictForecast(boolean conflictForecast) {
+        myState.conflictForecast = conflictForecast;
+    }
+
+    public boolean isFetchNoTags() {
+        return myState.fetchNoTags;
+    }
+
+    public void setFetchNoTags(boolean fetchNoTags) {
+        myState.fetchNoTags = fetchNoTags;
+    }
+
+    public boolean isFetchExplicitRefspec() {
+        return myState.fetchExplicitRefspec;
+    }
+
+    public void setFetchExplicitRefspec(boolean fetchExplicitRefspec) {
+        myState.fetchExplicitRefspec = fetchExplicitRefspec;
+    }
+
+    public boolean isFetchLimitNegotiation() {
+        return myState.fetchLimitNegotiation;
+    }
+
+    public void setFetchLimitNegotiation(boolean fetchLimitNegotiation) {
+        myState.fetchLimitNegotiation = fetchLimitNegotiation;
+    }
+
+    public String getFetchFilter() {
+        return myState.fetchFilter == null ? "" : myState.fetchFilter.trim();
+    }
+
+    public void setFetchFilter(String fetchFilter) {
+        myState.fetchFilter = fetchFilter;
+    }
+
+    public int getNetworkStepTimeoutSeconds() {
+        return Math.max(0, myState.networkStepTimeoutSeconds);
+    }
+
+    public void setNetworkStepTimeoutSeconds(int networkStepTimeoutSeconds) {
+        myState.networkStepTimeoutSeconds = networkStepTimeoutSeconds;
+    }
+
+    public int getLocalStepTimeoutSeconds() {
+        return Math.max(0, myState.localStepTimeoutSeconds);
+    }
+
+    public void setLocalStepTimeoutSeconds(int localStepTimeoutSeconds) {
+        myState.localStepTimeoutSeconds = localStepTimeoutSeconds;
     }
 
     /**
      * 配置状态类
      */
     public static class State {
+        /** 旧版本的单个目标分支，保留用于兼容 */
         public String targetBranch = "dev";
+        /** 目标分支列表，一次运行依次合并到所有目标分支 */
+        public List<String> targetBranches = new ArrayList<>();
+        /** 在对象库中完成合并，不切换工作区分支；存在冲突时回退到常规流程 */
+        public boolean checkoutFreeMerge = true;
+        /** 多仓库项目中同时合并所有 Git 根目录 */
+        public boolean mergeAllRepositories = false;
+        /** 多仓库并行合并的最大并发数 */
+        public int maxParallelRepositories = 4;
+        /** 预检查时一次 fetch 当前分支与所有目标分支，最后一次 --atomic 推送全部分支 */
+        public boolean batchedNetwork = true;
+        /** 提交前只暂存 IDE 已知的变更路径，而不是 git add . 扫描整个工作区 */
+        public boolean stageKnownChangesOnly = true;
+        /** 后台定期预取目标分支 */
+        public boolean prefetchEnabled = false;
+        /** 后台预取间隔（分钟） */
+        public int prefetchIntervalMinutes = 10;
+        /** 目标分支推送被他人抢先时自动重新合并并重试的次数，0 表示不重试 */
+        public int pushRetryLimit = 3;
+        /** 后台试合并当前分支与目标分支，合并前提示预计冲突 */
+        public boolean conflictForecast = true;
+        /** fetch 时不获取标签（--no-tags） */
+        public boolean fetchNoTags = false;
+        /** fetch 使用显式 refspec，只更新 refs/remotes/origin/分支 */
+        public boolean fetchExplicitRefspec = false;
+        /** fetch 协商只使用相关分支（--negotiation-tip），不发送本地所有引用 */
+        public boolean fetchLimitNegotiation = false;
+        /** 部分克隆过滤器（--filter），如 blob:none；为空表示不过滤 */
+        public String fetchFilter = "";
+        /** fetch/push 单步超时（秒），超时后终止 git 进程，0 表示不限时 */
+        public int networkStepTimeoutSeconds = 120;
+        /** 提交、切换分支、合并等本地步骤的单步超时（秒），0 表示不限时 */
+        public int localStepTimeoutSeconds = 300;
     }
 }
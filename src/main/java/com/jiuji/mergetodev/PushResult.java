@@ -0,0 +1,62 @@
+package com.jiuji.mergetodev;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 推送结果
+ */
+public final class PushResult {
+    static final PushResult SUCCESS = new PushResult(true, Collections.emptySet(), false);
+
+    /** " ! [rejected]        dev -> dev (fetch first)" */
+    private static final Pattern REJECTED_LINE =
+            Pattern.compile("!\\s+\\[(?:remote )?rejected]\\s+\\S+\\s+->\\s+(\\S+)\\s+\\((.+)\\)");
+
+    public final boolean success;
+    /** 因远程分支已被他人更新而被拒绝的分支 */
+    public final Set<String> staleBranches;
+    /** 是否存在其他原因的失败（网络、权限、钩子拒绝等） */
+    public final boolean otherFailure;
+
+    private PushResult(boolean success, Set<String> staleBranches, boolean otherFailure) {
+        this.success = success;
+        this.staleBranches = staleBranches;
+        this.otherFailure = otherFailure;
+    }
+
+    /**
+     * 失败仅由推送竞争导致，重新获取并合并后可重试
+     */
+    public boolean isRetryable() {
+        return !success && !otherFailure && !staleBranches.isEmpty();
+    }
+
+    static PushResult parse(List<String> lines) {
+        Set<String> stale = new LinkedHashSet<>();
+        boolean other = false;
+        for (String line : lines) {
+            Matcher matcher = REJECTED_LINE.matcher(line);
+            if (!matcher.find()) {
+                continue;
+            }
+            String reason = matcher.group(2);
+            if (reason.contains("atomic push failed")) {
+                // 原子推送中被连带拒绝的分支
+                continue;
+            }
+            if (reason.contains("fetch first") || reason.contains("non-fast-forward")
+                    || reason.contains("stale info") || reason.contains("cannot lock ref")) {
+                stale.add(matcher.group(1));
+            } else {
+                other = true;
+            }
+        }
+        // 没有解析到拒绝信息（网络错误等）视为其他失败
+        return new PushResult(false, stale, other || stale.isEmpty());
+    }
+}
@@ -0,0 +1,18 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 项目打开后启动插件的后台服务
+ */
+public class QuickMergeStartupActivity implements StartupActivity, DumbAware {
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        TargetPrefetchService.getInstance(project);
+        ConflictForecastService.getInstance(project);
+    }
+}
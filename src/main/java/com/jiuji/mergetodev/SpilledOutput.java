@@ -0,0 +1,162 @@
+package com.jiuji.mergetodev;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 超过阈值的命令输出：输出逐行写入临时文件，内存中只保留末尾
+ * 查看时内存映射文件并按行读取，输出内容不进入堆
+ */
+public final class SpilledOutput {
+
+    private final Path file;
+    private final long bytes;
+
+    private SpilledOutput(Path file, long bytes) {
+        this.file = file;
+        this.bytes = bytes;
+    }
+
+    /**
+     * 创建临时文件并逐行写入（所属日志关闭时删除，见 {@link GitOperationLog#close()}）
+     */
+    static Writer create() throws IOException {
+        return new Writer(Files.createTempFile("quick-merge-output", ".log"));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 内存映射文件并建立行索引（耗时与文件大小成正比，应在后台线程调用）
+     */
+    public Lines openLines() throws IOException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("输出过大，无法映射：" + bytes + " 字节");
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+        }
+
+        int[] starts = new int[1024];
+        int count = 0;
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+                starts[count++] = lineStart;
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < limit) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count + 1);
+            }
+            starts[count++] = lineStart;
+        }
+        return new Lines(buffer, starts, count);
+    }
+
+    /**
+     * 删除临时文件
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 删除失败时文件留在系统临时目录，由系统清理
+        }
+    }
+
+    /**
+     * 临时文件的写入端（调用方保证单线程写入）
+     */
+    static final class Writer {
+        private final Path file;
+        private final OutputStream out;
+        private long bytes;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.out = new BufferedOutputStream(Files.newOutputStream(file));
+        }
+
+        void write(String text) throws IOException {
+            byte[] content = text.getBytes(StandardCharsets.UTF_8);
+            out.write(content);
+            bytes += content.length;
+        }
+
+        /**
+         * 写入完成
+         */
+        SpilledOutput finish() throws IOException {
+            out.close();
+            return new SpilledOutput(file, bytes);
+        }
+
+        /**
+         * 写入失败时放弃并删除文件
+         */
+        void abort() {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // 随后删除
+            }
+            new SpilledOutput(file, bytes).delete();
+        }
+    }
+
+    /**
+     * 映射后的输出行，按需解码
+     */
+    public static final class Lines {
+        private final ByteBuffer buffer;
+        private final int[] starts;
+        private final int count;
+
+        private Lines(ByteBuffer buffer, int[] starts, int count) {
+            this.buffer = buffer;
+            this.starts = starts;
+            this.count = count;
+        }
+
+        public int getLineCount() {
+            return count;
+        }
+
+        public String getLine(int index) {
+            int start = starts[index];
+            int end = index + 1 < count ? starts[index + 1] - 1 : buffer.limit();
+            if (end > start && buffer.get(end - 1) == '\n') {
+                end--;
+            }
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
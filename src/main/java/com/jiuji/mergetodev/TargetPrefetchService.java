@@ -0,0 +1,150 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.ide.IdeEventQueue;
+import com.intellij.ide.PowerSaveMode;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import git4idea.GitUtil;
+import git4idea.commands.Git;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+import git4idea.repo.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 目标分支后台预取：定期把配置的目标分支 fetch 到 refs/remotes/origin/*，
+ * 合并时的 fetch 只需做一次近乎为空的增量协商
+ */
+@Service(Service.Level.PROJECT)
+public final class TargetPrefetchService implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(TargetPrefetchService.class);
+    /** 检查是否需要预取的周期 */
+    private static final long TICK_MINUTES = 1;
+    /** 用户最近这段时间内有操作时推迟预取，避免与输入争抢资源 */
+    private static final long MIN_IDLE_MS = 10_000;
+
+    private final Project project;
+    private final ExecutorService executor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Quick Merge Prefetch", 1);
+    /** 上一次预取仍在运行时跳过本周期 */
+    private final AtomicBoolean running = new AtomicBoolean();
+    /** 正在运行的预取的进度，关闭项目时取消以终止 git 进程 */
+    private volatile ProgressIndicator current;
+    private final ScheduledFuture<?> ticker;
+    private volatile long lastPrefetch = System.currentTimeMillis();
+
+    public TargetPrefetchService(Project project) {
+        this.project = project;
+        this.ticker = AppExecutorUtil.getAppScheduledExecutorService()
+                .scheduleWithFixedDelay(this::tick, TICK_MINUTES, TICK_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static TargetPrefetchService getInstance(@NotNull Project project) {
+        return project.getService(TargetPrefetchService.class);
+    }
+
+    /**
+     * 判断是否到达预取时间，满足条件时在后台执行
+     */
+    private void tick() {
+        MergeToDevSettings settings = MergeToDevSettings.getInstance();
+        if (!settings.isPrefetchEnabled() || project.isDisposed()) {
+            return;
+        }
+        long intervalMs = TimeUnit.MINUTES.toMillis(settings.getPrefetchIntervalMinutes());
+        if (System.currentTimeMillis() - lastPrefetch < intervalMs) {
+            return;
+        }
+        // 省电模式、索引中或用户正在操作时跳过，下一个周期再尝试
+        if (PowerSaveMode.isEnabled() || DumbService.isDumb(project)
+                || IdeEventQueue.getInstance().getIdleTime() < MIN_IDLE_MS) {
+            return;
+        }
+        if (running.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    prefetchAll(settings.getTargetBranches());
+                } finally {
+                    lastPrefetch = System.currentTimeMillis();
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    private void prefetchAll(List<String> targetBranches) {
+        for (GitRepository repository : GitUtil.getRepositories(project)) {
+            if (project.isDisposed()) {
+                return;
+            }
+            // 有合并或预检查的仓库跳过，本轮不再预取；预取期间开始的合并会取消预取
+            ProgressIndicator indicator = new EmptyProgressIndicator();
+            if (!MergeQueueService.getInstance(project).runIfIdle(repository, indicator,
+                    () -> prefetch(repository, targetBranches, indicator))) {
+                LOG.debug("Prefetch skipped, merge in progress in " + repository.getRoot().getPath());
+            }
+        }
+    }
+
+    /**
+     * git fetch origin +refs/heads/目标分支:refs/remotes/origin/目标分支 ...（静默，不弹认证对话框）
+     * 预取始终使用显式 refspec，其余选项与合并时的 fetch 策略一致；受网络步骤超时限制，超时后终止 git 进程
+     */
+    private void prefetch(GitRepository repository, List<String> targetBranches, ProgressIndicator indicator) {
+        FetchStrategy strategy = FetchStrategy.fromSettings();
+        GitLineHandler handler = new GitLineHandler(project, repository.getRoot(), GitCommand.FETCH);
+        handler.setSilent(true);
+        handler.addCustomEnvironmentVariable("GIT_TERMINAL_PROMPT", "0");
+        handler.addParameters(strategy.options(new GitRefQueries(project, repository.getRoot())::revParse, targetBranches));
+        handler.addParameters("origin");
+        for (String branch : targetBranches) {
+            handler.addParameters("+refs/heads/" + branch + ":refs/remotes/origin/" + branch);
+        }
+        current = indicator;
+        long timeoutMs = GitOperationHelper.stepTimeoutMs(true);
+        GitCommandResult result;
+        try {
+            result = timeoutMs > 0
+                    ? TimeLimitedProgress.compute(indicator, timeoutMs, () -> Git.getInstance().runCommand(handler))
+                    : ProgressManager.getInstance().runProcess(() -> Git.getInstance().runCommand(handler), indicator);
+        } catch (TimeoutException e) {
+            LOG.info("Prefetch of " + targetBranches + " timed out in " + repository.getRoot().getPath());
+            return;
+        } catch (ProcessCanceledException e) {
+            return;
+        } finally {
+            current = null;
+        }
+        if (!result.success()) {
+            LOG.info("Prefetch of " + targetBranches + " failed in " + repository.getRoot().getPath()
+                    + ": " + result.getErrorOutputAsJoinedString());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        ticker.cancel(false);
+        ProgressIndicator indicator = current;
+        if (indicator != null) {
+            indicator.cancel();
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,49 @@
+package com.jiuji.mergetodev;
+
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 限时执行工具：在子进度中运行 git 操作，超时后取消子进度，
+ * Git4Idea 检测到进度取消后会终止正在运行的 git 进程
+ */
+public final class TimeLimitedProgress {
+
+    private TimeLimitedProgress() {
+    }
+
+    /**
+     * 在限定时间内执行操作
+     * @throws TimeoutException 超时（父进度被取消时抛出 ProcessCanceledException）
+     */
+    public static <T> T compute(ProgressIndicator indicator, long timeoutMs, Supplier<T> action) throws TimeoutException {
+        SensitiveProgressWrapper child = new SensitiveProgressWrapper(indicator);
+        ScheduledFuture<?> timer = AppExecutorUtil.getAppScheduledExecutorService()
+                .schedule(child::cancel, timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            T result = ProgressManager.getInstance().runProcess(action::get, child);
+            if (child.isCanceled()) {
+                throw timeoutOrCancel(indicator, timeoutMs);
+            }
+            return result;
+        } catch (ProcessCanceledException e) {
+            throw timeoutOrCancel(indicator, timeoutMs);
+        } finally {
+            timer.cancel(false);
+        }
+    }
+
+    private static TimeoutException timeoutOrCancel(ProgressIndicator indicator, long timeoutMs) {
+        // 用户主动取消时继续向上传播
+        indicator.checkCanceled();
+        return new TimeoutException("操作超时（" + timeoutMs / 1000 + " 秒）");
+    }
+}
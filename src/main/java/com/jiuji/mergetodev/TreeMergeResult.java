@@ -0,0 +1,61 @@
+package com.jiuji.mergetodev;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 对象库试合并结果
+ */
+public final class TreeMergeResult {
+    public enum Status { CLEAN, CONFLICT, UNSUPPORTED }
+
+    public final Status status;
+    public final String tree;
+    public final List<String> conflicts;
+
+    private TreeMergeResult(Status status, String tree, List<String> conflicts) {
+        this.status = status;
+        this.tree = tree;
+        this.conflicts = conflicts;
+    }
+
+    static TreeMergeResult clean(String tree) {
+        return new TreeMergeResult(Status.CLEAN, tree, Collections.emptyList());
+    }
+
+    static TreeMergeResult conflict(List<String> conflicts) {
+        return new TreeMergeResult(Status.CONFLICT, null, conflicts);
+    }
+
+    static TreeMergeResult unsupported() {
+        return new TreeMergeResult(Status.UNSUPPORTED, null, Collections.emptyList());
+    }
+
+    /**
+     * git merge-tree 的参数（不含 git）
+     */
+    static String[] args(String ours, String theirs) {
+        return new String[]{"merge-tree", "--write-tree", "--name-only", "--no-messages", ours, theirs};
+    }
+
+    /**
+     * 解析 git merge-tree --write-tree --name-only 的输出：
+     * 退出码 0 为无冲突，1 为有冲突（首行之后为冲突文件），其他或无输出表示不支持
+     */
+    static TreeMergeResult parse(int exitCode, List<String> lines) {
+        if (exitCode < 0 || exitCode > 1 || lines.isEmpty()) {
+            return unsupported();
+        }
+        if (exitCode == 1) {
+            List<String> conflicts = new ArrayList<>();
+            for (String line : lines.subList(1, lines.size())) {
+                if (!line.isBlank()) {
+                    conflicts.add(line.trim());
+                }
+            }
+            return conflict(conflicts);
+        }
+        return clean(lines.get(0).trim());
+    }
+}
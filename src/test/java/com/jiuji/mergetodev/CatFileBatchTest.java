@@ -0,0 +1,185 @@
+package com.jiuji.mergetodev;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 常驻 cat-file 进程的引用解析与领先/落后统计，结果与 git rev-parse / git rev-list --left-right --count 对照
+ * 需要 PATH 中有 git
+ */
+class CatFileBatchTest {
+
+    /** 生成的提交时间从此开始，每个提交晚一分钟 */
+    private static final long START_SECONDS = 1_700_000_000L;
+    /** 提交图中出现的引用，两两对照 */
+    private static final List<String> REFS = List.of(
+            "main", "feature", "topic", "skewed", "origin-main", "main~3", "feature~1^2", "root");
+
+    @TempDir
+    static Path repo;
+    private static long clock = START_SECONDS;
+
+    private CatFileBatch batch;
+
+    /**
+     * 生成提交图：
+     * main 与 feature 分叉，feature 合入过 topic，topic 又合入过 main 的较早提交；
+     * skewed 上有一个提交时间比父提交早 12 小时的提交（时间倒置，在容忍范围内）
+     */
+    @BeforeAll
+    static void createRepository() throws Exception {
+        git("init", "-q", "-b", "main");
+        commit("root");
+        git("tag", "root");
+        commit("m1");
+        git("checkout", "-q", "-b", "topic");
+        commit("t1");
+        commit("t2");
+        git("checkout", "-q", "main");
+        commit("m2");
+        git("branch", "feature");
+        commit("m3");
+        git("merge", "-q", "--no-ff", "-m", "merge topic", "topic");
+        git("branch", "origin-main");
+        commit("m4");
+        commit("m5");
+
+        git("checkout", "-q", "topic");
+        commit("t3");
+        git("checkout", "-q", "feature");
+        commit("f1");
+        git("merge", "-q", "--no-ff", "-m", "merge topic", "topic");
+        commit("f2");
+
+        git("checkout", "-q", "-b", "skewed", "main~2");
+        commit("s1");
+        clock -= 12 * 60 * 60;
+        commit("s2 skewed");
+        clock += 12 * 60 * 60;
+        commit("s3");
+        git("checkout", "-q", "main");
+    }
+
+    @BeforeEach
+    void startBatch() {
+        batch = new CatFileBatch("git", repo.toFile());
+    }
+
+    @AfterEach
+    void stopBatch() {
+        batch.stop();
+    }
+
+    @Test
+    void revParseMatchesGit() throws Exception {
+        for (String ref : REFS) {
+            assertEquals(git("rev-parse", ref + "^{commit}"), batch.revParse(ref), ref);
+        }
+        assertEquals(1, batch.getStarts());
+    }
+
+    @Test
+    void missingRefIsNull() throws Exception {
+        assertNull(batch.revParse("no-such-branch"));
+        assertNull(batch.aheadBehind("main", "no-such-branch", () -> { }));
+        assertNull(batch.aheadBehind("no-such-branch", "main", () -> { }));
+        // 不存在的引用不影响后续查询
+        assertEquals(git("rev-parse", "main"), batch.revParse("main"));
+        assertEquals(1, batch.getStarts());
+    }
+
+    @Test
+    void aheadBehindMatchesRevList() throws Exception {
+        for (String base : REFS) {
+            for (String head : REFS) {
+                // 输出 "<只在 base 上的提交数>\t<只在 head 上的提交数>"
+                String[] counts = git("rev-list", "--left-right", "--count", base + "..." + head).split("\\s+");
+                AheadBehind result = batch.aheadBehind(base, head, () -> { });
+                String pair = base + "..." + head;
+                assertEquals(Integer.parseInt(counts[0]), result.behind, pair + " behind");
+                assertEquals(Integer.parseInt(counts[1]), result.ahead, pair + " ahead");
+            }
+        }
+    }
+
+    @Test
+    void ancestorIsNotAhead() throws Exception {
+        AheadBehind result = batch.aheadBehind("origin-main", "main", () -> { });
+
+        assertEquals(2, result.ahead);
+        assertEquals(0, result.behind);
+        assertTrue(batch.aheadBehind("main", "origin-main", () -> { }).behind > 0);
+    }
+
+    @Test
+    void cancellationKeepsProcessUsable() throws Exception {
+        try {
+            batch.aheadBehind("root", "feature", () -> {
+                throw new IllegalStateException("cancelled");
+            });
+        } catch (IllegalStateException expected) {
+            // 取消在两次读取之间抛出
+        }
+        assertTrue(batch.isRunning());
+        assertEquals(git("rev-parse", "feature"), batch.revParse("feature"));
+        assertEquals(1, batch.getStarts());
+    }
+
+    @Test
+    void stoppedProcessRestartsOnNextQuery() throws Exception {
+        batch.revParse("main");
+        batch.stop();
+        assertFalse(batch.isRunning());
+
+        assertEquals(git("rev-parse", "main"), batch.revParse("main"));
+        assertEquals(2, batch.getStarts());
+        assertFalse(batch.isKilled());
+    }
+
+    private static void commit(String message) throws Exception {
+        Files.writeString(repo.resolve(message.split(" ")[0] + ".txt"), message, StandardCharsets.UTF_8);
+        git("add", "-A");
+        git("commit", "-q", "-m", message);
+        clock += 60;
+    }
+
+    /**
+     * 在生成的仓库中执行 git，提交时间取 clock；返回去掉首尾空白的输出，失败时抛出异常
+     */
+    private static String git(String... args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(repo.toFile())
+                .redirectErrorStream(true);
+        String date = "@" + clock + " +0800";
+        builder.environment().put("GIT_AUTHOR_NAME", "test");
+        builder.environment().put("GIT_AUTHOR_EMAIL", "test@localhost");
+        builder.environment().put("GIT_COMMITTER_NAME", "test");
+        builder.environment().put("GIT_COMMITTER_EMAIL", "test@localhost");
+        builder.environment().put("GIT_AUTHOR_DATE", date);
+        builder.environment().put("GIT_COMMITTER_DATE", date);
+        Process process = builder.start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        if (process.waitFor() != 0) {
+            throw new IOException("git " + String.join(" ", args) + " 失败：" + output);
+        }
+        return output;
+    }
+}
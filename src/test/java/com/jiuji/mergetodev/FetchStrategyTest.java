@@ -0,0 +1,116 @@
+package com.jiuji.mergetodev;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * fetch 选项、refspec 与进度输出统计
+ */
+class FetchStrategyTest {
+
+    /** 本地存在的引用 */
+    private static final Map<String, String> REFS = Map.of(
+            "refs/remotes/origin/dev", "1111111111111111111111111111111111111111",
+            "refs/heads/dev", "2222222222222222222222222222222222222222",
+            "refs/heads/feature", "3333333333333333333333333333333333333333");
+    private static final Function<String, String> REV_PARSE = REFS::get;
+
+    @Test
+    void defaultOptionsOnlyReportProgress() {
+        FetchStrategy strategy = new FetchStrategy(false, false, false, null);
+
+        assertEquals(List.of("--progress"), strategy.options(REV_PARSE, List.of("dev"), "feature"));
+        assertEquals("", strategy.describe(strategy.options(REV_PARSE, List.of("dev"))));
+    }
+
+    @Test
+    void noTagsAndTrimmedFilter() {
+        FetchStrategy strategy = new FetchStrategy(true, false, false, "  blob:none ");
+
+        assertEquals(List.of("--progress", "--no-tags", "--filter=blob:none"), strategy.options(REV_PARSE, List.of("dev")));
+    }
+
+    @Test
+    void blankFilterIsOmitted() {
+        FetchStrategy strategy = new FetchStrategy(false, false, false, "   ");
+
+        assertEquals(List.of("--progress"), strategy.options(REV_PARSE, List.of("dev")));
+    }
+
+    @Test
+    void negotiationTipsOnlyForExistingRefs() {
+        FetchStrategy strategy = new FetchStrategy(false, false, true, "");
+
+        List<String> options = strategy.options(REV_PARSE, List.of("dev", "test"), "feature", "dev");
+
+        assertEquals(List.of("--progress",
+                "--negotiation-tip=refs/remotes/origin/dev",
+                "--negotiation-tip=refs/heads/dev",
+                "--negotiation-tip=refs/heads/feature"), options);
+        assertEquals("--negotiation-tip×3 ", strategy.describe(options));
+    }
+
+    @Test
+    void noNegotiationTipsWhenNoRefExists() {
+        FetchStrategy strategy = new FetchStrategy(true, false, true, "");
+
+        List<String> options = strategy.options(ref -> null, List.of("dev"), "feature");
+
+        assertEquals(List.of("--progress", "--no-tags"), options);
+        assertEquals("--no-tags ", strategy.describe(options));
+    }
+
+    @Test
+    void explicitRefspecUpdatesOnlyRemoteTrackingBranches() {
+        List<String> branches = List.of("dev", "release/1.0");
+
+        assertEquals(List.of("+refs/heads/dev:refs/remotes/origin/dev",
+                        "+refs/heads/release/1.0:refs/remotes/origin/release/1.0"),
+                new FetchStrategy(false, true, false, "").refspecs(branches));
+        assertSame(branches, new FetchStrategy(false, false, false, "").refspecs(branches));
+    }
+
+    @Test
+    void progressLinesAreRecognized() {
+        assertTrue(FetchStrategy.isProgressLine("Receiving objects:  45% (55/122)"));
+        assertTrue(FetchStrategy.isProgressLine("remote: Counting objects:  10% (1/10)"));
+        assertFalse(FetchStrategy.isProgressLine("Receiving objects: 100% (122/122), 356.37 KiB | 59.39 MiB/s, done."));
+        assertFalse(FetchStrategy.isProgressLine("From git.example.com:team/app"));
+    }
+
+    @Test
+    void transferCountsReceivedBytes() {
+        FetchStrategy.Transfer transfer = new FetchStrategy.Transfer();
+        transfer.onLineAvailable("remote: Total 122 (delta 40), reused 0 (delta 0)", null);
+        transfer.onLineAvailable("Receiving objects:  45% (55/122)\rReceiving objects: 100% (122/122), 1.50 MiB | 59.39 MiB/s, done.", null);
+
+        assertEquals(122, transfer.getObjects());
+        assertEquals(1024 * 1024 * 3 / 2, transfer.getBytes());
+    }
+
+    @Test
+    void transferWithoutSizeUsesRemoteTotal() {
+        FetchStrategy.Transfer transfer = new FetchStrategy.Transfer();
+        transfer.onLineAvailable("remote: Total 3 (delta 1), reused 0 (delta 0)", null);
+
+        assertEquals(3, transfer.getObjects());
+        assertEquals(-1, transfer.getBytes());
+        assertEquals("3 个对象", transfer.summary());
+    }
+
+    @Test
+    void upToDateFetchHasNoObjects() {
+        FetchStrategy.Transfer transfer = new FetchStrategy.Transfer();
+
+        assertEquals(0, transfer.getObjects());
+        assertEquals("无新对象", transfer.summary());
+    }
+}
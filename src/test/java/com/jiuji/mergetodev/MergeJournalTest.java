@@ -0,0 +1,108 @@
+package com.jiuji.mergetodev;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 合并步骤日志：跳过判断、续跑位置、留在目标分支的检测与过期
+ */
+class MergeJournalTest {
+
+    @Test
+    void stepIsDoneOnlyWithSameInputs() {
+        MergeJournal journal = new MergeJournal("feature", "feature→dev");
+        journal.record("merge:feature→dev", "aaa..bbb", MergeJournal.Status.DONE, "ccc");
+
+        assertTrue(journal.isDone("merge:feature→dev", "aaa..bbb"));
+        assertFalse(journal.isDone("merge:feature→dev", "aaa..ddd"));
+        assertFalse(journal.isDone("push", "aaa..bbb"));
+    }
+
+    @Test
+    void failedStepIsNotDone() {
+        MergeJournal journal = new MergeJournal("feature", "feature→dev");
+        journal.record("push", "ccc", MergeJournal.Status.FAILED, null);
+
+        assertFalse(journal.isDone("push", "ccc"));
+    }
+
+    @Test
+    void recordOverwritesStepWithSameName() {
+        MergeJournal journal = new MergeJournal("feature", "feature→dev");
+        journal.record("fetch", "aaa", MergeJournal.Status.STARTED, null);
+        journal.record("fetch", "bbb", MergeJournal.Status.DONE, "ok");
+
+        assertEquals(1, journal.steps.size());
+        MergeJournal.Step step = journal.find("fetch");
+        assertEquals("bbb", step.inputs);
+        assertEquals(MergeJournal.Status.DONE, step.status);
+        assertEquals("ok", step.output);
+        assertEquals(step.time, journal.updatedAt);
+    }
+
+    @Test
+    void firstIncompleteKeepsRecordingOrder() {
+        MergeJournal journal = new MergeJournal("feature", "feature→dev,test");
+        journal.record("fetch", "a", MergeJournal.Status.DONE, null);
+        journal.record("merge:feature→dev", "b", MergeJournal.Status.FAILED, null);
+        journal.record("merge:feature→test", "c", MergeJournal.Status.STARTED, null);
+
+        assertSame(journal.find("merge:feature→dev"), journal.firstIncomplete());
+
+        journal.record("merge:feature→dev", "b", MergeJournal.Status.DONE, null);
+        journal.record("merge:feature→test", "c", MergeJournal.Status.DONE, null);
+        assertNull(journal.firstIncomplete());
+    }
+
+    @Test
+    void strandedTargetIsCheckoutNotSwitchedBack() {
+        MergeJournal journal = new MergeJournal("feature", "feature→dev,test");
+        journal.record(MergeJournal.CHECKOUT_PREFIX + "dev", "a", MergeJournal.Status.DONE, null);
+        assertNull(journal.strandedTarget());
+
+        // 合并冲突时停在 test 上，切回原分支的步骤未完成
+        journal.record(MergeJournal.CHECKOUT_PREFIX + "test", "b", MergeJournal.Status.STARTED, null);
+        journal.record("merge:feature→test", "c", MergeJournal.Status.FAILED, null);
+        assertEquals("test", journal.strandedTarget());
+
+        journal.record(MergeJournal.CHECKOUT_PREFIX + "test", "b", MergeJournal.Status.FAILED, null);
+        assertEquals("test", journal.strandedTarget());
+
+        journal.record(MergeJournal.CHECKOUT_PREFIX + "test", "b", MergeJournal.Status.DONE, null);
+        assertNull(journal.strandedTarget());
+    }
+
+    @Test
+    void copyIsIndependent() {
+        MergeJournal journal = new MergeJournal("feature", "feature→dev");
+        journal.record("fetch", "a", MergeJournal.Status.DONE, "ok");
+
+        MergeJournal copy = journal.copy();
+        copy.record("fetch", "b", MergeJournal.Status.FAILED, null);
+        copy.record("push", "c", MergeJournal.Status.STARTED, null);
+
+        assertEquals("feature", copy.branch);
+        assertEquals("feature→dev", copy.sources);
+        assertEquals(1, journal.steps.size());
+        assertTrue(journal.isDone("fetch", "a"));
+    }
+
+    @Test
+    void expiresAfterMaxAgeWithoutUpdates() {
+        MergeJournal journal = new MergeJournal("feature", "feature→dev");
+        journal.updatedAt = 1_000;
+
+        assertFalse(journal.isExpired(1_000));
+        assertFalse(journal.isExpired(1_000 + MergeJournal.MAX_AGE_MS));
+        assertTrue(journal.isExpired(1_001 + MergeJournal.MAX_AGE_MS));
+
+        // 任何步骤的记录都会刷新更新时间
+        journal.record("fetch", "a", MergeJournal.Status.STARTED, null);
+        assertFalse(journal.isExpired(System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.jiuji.mergetodev;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 推送输出解析：只有推送竞争导致的拒绝可以重试
+ */
+class PushResultTest {
+
+    @Test
+    void successIsNotRetryable() {
+        assertTrue(PushResult.SUCCESS.success);
+        assertFalse(PushResult.SUCCESS.isRetryable());
+    }
+
+    @Test
+    void staleRemoteBranchesAreRetryable() {
+        PushResult result = PushResult.parse(List.of(
+                "To git.example.com:team/app.git",
+                " ! [rejected]        dev -> dev (fetch first)",
+                " ! [rejected]        test -> test (non-fast-forward)",
+                "error: failed to push some refs to 'git.example.com:team/app.git'"));
+
+        assertFalse(result.success);
+        assertFalse(result.otherFailure);
+        assertEquals(Set.of("dev", "test"), result.staleBranches);
+        assertTrue(result.isRetryable());
+    }
+
+    @Test
+    void staleInfoAndLockFailuresAreRetryable() {
+        PushResult result = PushResult.parse(List.of(
+                " ! [rejected]        dev -> dev (stale info)",
+                " ! [remote rejected] test -> test (cannot lock ref 'refs/heads/test': is at 1234 but expected 5678)"));
+
+        assertEquals(Set.of("dev", "test"), result.staleBranches);
+        assertTrue(result.isRetryable());
+    }
+
+    @Test
+    void branchesRejectedOnlyBecauseOfAtomicPushAreIgnored() {
+        PushResult result = PushResult.parse(List.of(
+                " ! [rejected]        dev -> dev (fetch first)",
+                " ! [rejected]        test -> test (atomic push failed)"));
+
+        assertEquals(Set.of("dev"), result.staleBranches);
+        assertTrue(result.isRetryable());
+    }
+
+    @Test
+    void hookRejectionIsNotRetryable() {
+        PushResult result = PushResult.parse(List.of(
+                " ! [rejected]        dev -> dev (fetch first)",
+                " ! [remote rejected] test -> test (pre-receive hook declined)"));
+
+        assertEquals(Set.of("dev"), result.staleBranches);
+        assertTrue(result.otherFailure);
+        assertFalse(result.isRetryable());
+    }
+
+    @Test
+    void outputWithoutRejectionsIsOtherFailure() {
+        PushResult result = PushResult.parse(List.of(
+                "fatal: unable to access 'https://git.example.com/team/app.git/': Could not resolve host"));
+
+        assertFalse(result.success);
+        assertTrue(result.staleBranches.isEmpty());
+        assertTrue(result.otherFailure);
+        assertFalse(result.isRetryable());
+    }
+}
@@ -0,0 +1,58 @@
+package com.jiuji.mergetodev;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * git merge-tree --write-tree --name-only 的输出解析
+ */
+class TreeMergeResultTest {
+
+    private static final String TREE = "4b825dc642cb6eb9a060e54bf8d69288fbee4904";
+
+    @Test
+    void argsWriteTreeWithoutMessages() {
+        assertArrayEquals(new String[]{"merge-tree", "--write-tree", "--name-only", "--no-messages", "ours", "theirs"},
+                TreeMergeResult.args("ours", "theirs"));
+    }
+
+    @Test
+    void exitCodeZeroIsClean() {
+        TreeMergeResult result = TreeMergeResult.parse(0, List.of(TREE + "  "));
+
+        assertEquals(TreeMergeResult.Status.CLEAN, result.status);
+        assertEquals(TREE, result.tree);
+        assertTrue(result.conflicts.isEmpty());
+    }
+
+    @Test
+    void exitCodeOneListsConflictedFiles() {
+        TreeMergeResult result = TreeMergeResult.parse(1, List.of(TREE, "src/Main.java", "", " README.md "));
+
+        assertEquals(TreeMergeResult.Status.CONFLICT, result.status);
+        assertNull(result.tree);
+        assertEquals(List.of("src/Main.java", "README.md"), result.conflicts);
+    }
+
+    @Test
+    void otherExitCodesAreUnsupported() {
+        // git 2.38 以下不认识 --write-tree，输出用法说明并以 129 退出
+        assertEquals(TreeMergeResult.Status.UNSUPPORTED,
+                TreeMergeResult.parse(129, List.of("usage: git merge-tree <base-tree> <branch1> <branch2>")).status);
+        assertEquals(TreeMergeResult.Status.UNSUPPORTED, TreeMergeResult.parse(-1, List.of(TREE)).status);
+    }
+
+    @Test
+    void missingOutputIsUnsupported() {
+        TreeMergeResult result = TreeMergeResult.parse(0, List.of());
+
+        assertEquals(TreeMergeResult.Status.UNSUPPORTED, result.status);
+        assertNull(result.tree);
+    }
+}